@@ -0,0 +1,165 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Встроенная H2 для бенчмарков: схему создают миграции Flyway, данные добавляются через JDBC
+// до старта Spring-контекста, поэтому индексы в памяти (популярные фильмы, известные id, граф дружбы)
+// загружаются как в проде.
+public final class BenchmarkDatabase {
+
+    private static final String USERNAME = "sa";
+    private static final String PASSWORD = "password";
+    private static final int BATCH_SIZE = 10_000;
+    private static final AtomicInteger DATABASE_COUNTER = new AtomicInteger();
+
+    private BenchmarkDatabase() {
+    }
+
+    public static ConfigurableApplicationContext start(int films, int users, int likesPerUser, int friendsPerUser) {
+        return start(films, users, likesPerUser, friendsPerUser, WebApplicationType.NONE);
+    }
+
+    public static ConfigurableApplicationContext start(int films, int users, int likesPerUser, int friendsPerUser,
+                                                       WebApplicationType webApplicationType, String... args) {
+        String url = "jdbc:h2:mem:benchmark" + DATABASE_COUNTER.incrementAndGet() + ";DB_CLOSE_DELAY=-1";
+        Flyway.configure()
+                .dataSource(url, USERNAME, PASSWORD)
+                .load()
+                .migrate();
+        try (Connection connection = DriverManager.getConnection(url, USERNAME, PASSWORD)) {
+            seed(connection, films, users, likesPerUser, friendsPerUser);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Не удалось заполнить базу для бенчмарка", e);
+        }
+        List<String> arguments = new ArrayList<>(List.of(
+                "--spring.datasource.url=" + url,
+                "--logging.level.root=WARN"));
+        arguments.addAll(List.of(args));
+        return new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(webApplicationType)
+                .run(arguments.toArray(String[]::new));
+    }
+
+    private static void seed(Connection connection, int films, int users, int likesPerUser, int friendsPerUser)
+            throws SQLException {
+        connection.setAutoCommit(false);
+        Random random = new Random(42);
+
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO FILMS (NAME, DESCRIPTION, RELEASE_DATE, DURATION, RATING_ID) VALUES (?, ?, ?, ?, ?)")) {
+            for (int i = 1; i <= films; i++) {
+                statement.setString(1, "Фильм " + i);
+                statement.setString(2, "Описание фильма " + i);
+                statement.setDate(3, Date.valueOf(LocalDate.of(1950, 1, 1).plusDays(random.nextInt(25_000))));
+                statement.setInt(4, 60 + random.nextInt(120));
+                statement.setInt(5, 1 + random.nextInt(5));
+                addBatch(statement, i);
+            }
+            statement.executeBatch();
+        }
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO FILMS_GENRES (FILMS_ID, GENRE_ID) VALUES (?, ?)")) {
+            int rows = 0;
+            for (int i = 1; i <= films; i++) {
+                int first = 1 + random.nextInt(6);
+                int second = 1 + random.nextInt(6);
+                statement.setLong(1, i);
+                statement.setInt(2, first);
+                addBatch(statement, ++rows);
+                if (second != first) {
+                    statement.setLong(1, i);
+                    statement.setInt(2, second);
+                    addBatch(statement, ++rows);
+                }
+            }
+            statement.executeBatch();
+        }
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO USERS (EMAIL, LOGIN, NAME, BIRTHDAY) VALUES (?, ?, ?, ?)")) {
+            for (int i = 1; i <= users; i++) {
+                statement.setString(1, "user" + i + "@ya.ru");
+                statement.setString(2, "user" + i);
+                statement.setString(3, "Пользователь " + i);
+                statement.setDate(4, Date.valueOf(LocalDate.of(1970, 1, 1).plusDays(random.nextInt(15_000))));
+                addBatch(statement, i);
+            }
+            statement.executeBatch();
+        }
+        // Популярность фильмов неравномерна: чаще лайкают фильмы с маленькими id.
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO LIKES (USER_ID, FILMS_ID) VALUES (?, ?)")) {
+            int rows = 0;
+            Set<Long> liked = new HashSet<>();
+            for (int user = 1; user <= users; user++) {
+                liked.clear();
+                while (liked.size() < Math.min(likesPerUser, films)) {
+                    double skew = random.nextDouble();
+                    liked.add(1 + (long) (films * skew * skew));
+                }
+                for (long film : liked) {
+                    statement.setLong(1, user);
+                    statement.setLong(2, film);
+                    addBatch(statement, ++rows);
+                }
+            }
+            statement.executeBatch();
+        }
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO FRIENDS (USER_ID, FRIEND_ID) VALUES (?, ?)")) {
+            int rows = 0;
+            Set<Long> friends = new HashSet<>();
+            for (int user = 1; user <= users; user++) {
+                friends.clear();
+                while (friends.size() < Math.min(friendsPerUser, users - 1)) {
+                    long friend = 1 + random.nextInt(users);
+                    if (friend != user) {
+                        friends.add(friend);
+                    }
+                }
+                for (long friend : friends) {
+                    statement.setLong(1, user);
+                    statement.setLong(2, friend);
+                    addBatch(statement, ++rows);
+                }
+            }
+            statement.executeBatch();
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("""
+                    UPDATE FILMS AS f
+                    SET LIKES_COUNT = (SELECT COUNT(*) FROM LIKES AS l WHERE l.FILMS_ID = f.FILMS_ID)
+                    """);
+            statement.executeUpdate("""
+                    UPDATE FRIENDS AS f
+                    SET STATUS = 'CONFIRMED'
+                    WHERE EXISTS (SELECT 1 FROM FRIENDS AS r WHERE r.USER_ID = f.FRIEND_ID AND r.FRIEND_ID = f.USER_ID)
+                    """);
+        }
+        connection.commit();
+    }
+
+    private static void addBatch(PreparedStatement statement, int row) throws SQLException {
+        statement.addBatch();
+        if (row % BATCH_SIZE == 0) {
+            statement.executeBatch();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.mapper.FilmResultSetExtractor;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Поиск первой страницы фильмов: обратный индекс в памяти против LIKE '%q%' по NAME и DESCRIPTION.
+// Запрос "4242" находит несколько фильмов, "фильм" — все: это стоп-слово, и выдача идет по лайкам.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmSearchBenchmark {
+
+    private static final int LIKES_PER_USER = 5;
+    private static final int PAGE_SIZE = 10;
+    private static final Set<FilmSearchIndex.Field> FIELDS = EnumSet.allOf(FilmSearchIndex.Field.class);
+
+    // Прежний способ поиска, без индекса: полный просмотр FILMS.
+    private static final String FILMS_SEARCH_LIKE_QUERY = """
+            SELECT *
+            FROM (
+                SELECT *
+                FROM FILMS
+                WHERE LOWER(NAME) LIKE ?
+                    OR LOWER(DESCRIPTION) LIKE ?
+                ORDER BY LIKES_COUNT DESC, FILMS_ID
+                LIMIT ?
+                ) AS f
+            LEFT JOIN MPA AS r ON  f.RATING_ID = r.RATING_ID
+            LEFT JOIN FILMS_GENRES AS fg ON fg.FILMS_ID = f.FILMS_ID
+            LEFT JOIN GENRES AS g ON g.GENRE_ID = fg.GENRE_ID
+            ORDER BY f.LIKES_COUNT DESC, f.FILMS_ID, g.GENRE_ID;
+            """;
+
+    @Param({"1000", "100000"})
+    public int films;
+
+    @Param({"4242", "фильм"})
+    public String query;
+
+    private ConfigurableApplicationContext context;
+    private FilmDbStorage filmDbStorage;
+    private FilmSearchIndex filmSearchIndex;
+    private JdbcTemplate jdbc;
+    private FilmResultSetExtractor filmExtractor;
+    private String pattern;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkDatabase.start(films, films, LIKES_PER_USER, 1);
+        filmDbStorage = context.getBean(FilmDbStorage.class);
+        filmSearchIndex = context.getBean(FilmSearchIndex.class);
+        jdbc = context.getBean(JdbcTemplate.class);
+        filmExtractor = context.getBean(FilmResultSetExtractor.class);
+        pattern = "%" + query.toLowerCase(Locale.ROOT) + "%";
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Collection<Film> index() {
+        return filmDbStorage.search(query, FIELDS, 0, PAGE_SIZE);
+    }
+
+    // Только ранжирование в индексе, без загрузки фильмов из БД.
+    @Benchmark
+    public Collection<Long> indexIdsOnly() {
+        return filmSearchIndex.search(query, FIELDS, 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Collection<Film> like() {
+        return jdbc.query(FILMS_SEARCH_LIKE_QUERY, filmExtractor, pattern, pattern, PAGE_SIZE);
+    }
+}
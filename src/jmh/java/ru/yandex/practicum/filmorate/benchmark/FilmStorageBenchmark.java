@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmStorageBenchmark {
+
+    private static final int LIKES_PER_USER = 5;
+
+    @Param({"1000", "100000"})
+    public int films;
+
+    private ConfigurableApplicationContext context;
+    private FilmDbStorage filmDbStorage;
+    private long benchmarkUserId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkDatabase.start(films, films, LIKES_PER_USER, 1);
+        filmDbStorage = context.getBean(FilmDbStorage.class);
+        // Отдельный пользователь без лайков, чтобы addLike не упирался в дубликаты.
+        User user = User.builder()
+                .email("benchmark@ya.ru")
+                .login("benchmark")
+                .name("Benchmark")
+                .birthday(LocalDate.of(2000, 1, 1))
+                .build();
+        benchmarkUserId = context.getBean(UserDbStorage.class).create(user).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Collection<Film> getPopular() {
+        return filmDbStorage.getPopular(10L);
+    }
+
+    @Benchmark
+    public Collection<Film> findAll() {
+        return filmDbStorage.findAll();
+    }
+
+    @Benchmark
+    public Film findById() {
+        return filmDbStorage.findById(randomFilmId());
+    }
+
+    // Лайк и его отмена, чтобы состояние базы не менялось между итерациями.
+    @Benchmark
+    public void addLike() {
+        long filmId = randomFilmId();
+        filmDbStorage.addLike(filmId, benchmarkUserId);
+        filmDbStorage.deleteLike(filmId, benchmarkUserId);
+    }
+
+    private long randomFilmId() {
+        return 1 + ThreadLocalRandom.current().nextInt(films);
+    }
+}
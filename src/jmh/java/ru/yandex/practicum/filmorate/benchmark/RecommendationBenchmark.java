@@ -0,0 +1,100 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.LikesGraph;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Рекомендации для случайного пользователя, 100 000 фильмов и пользователей.
+// 10 млн лайков не помещаются в H2 в памяти, поэтому расчет сходства измеряется на графе,
+// заполненном напрямую с тем же распределением, что и BenchmarkDatabase,
+// а полный путь с загрузкой фильмов из БД — на 1 млн лайков.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class RecommendationBenchmark {
+
+    private static final int FILMS = 100_000;
+    private static final int USERS = 100_000;
+
+    @State(Scope.Benchmark)
+    public static class Graph {
+
+        @Param({"10", "100"})
+        public int likesPerUser;
+
+        private LikesGraph likesGraph;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            likesGraph = new LikesGraph(null, 1000);
+            Random random = new Random(42);
+            Set<Long> liked = new HashSet<>();
+            for (long user = 1; user <= USERS; user++) {
+                liked.clear();
+                while (liked.size() < likesPerUser) {
+                    double skew = random.nextDouble();
+                    liked.add(1 + (long) (FILMS * skew * skew));
+                }
+                for (long film : liked) {
+                    likesGraph.add(user, film);
+                }
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Database {
+
+        private ConfigurableApplicationContext context;
+        private FilmDbStorage filmDbStorage;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            context = BenchmarkDatabase.start(FILMS, USERS, 10, 1);
+            filmDbStorage = context.getBean(FilmDbStorage.class);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public List<Long> recommend(Graph graph) {
+        return graph.likesGraph.recommend(randomUserId(), 10);
+    }
+
+    @Benchmark
+    public Collection<Film> getRecommendations(Database database) {
+        return database.filmDbStorage.getRecommendations(randomUserId(), 10);
+    }
+
+    private static long randomUserId() {
+        return ThreadLocalRandom.current().nextLong(1, USERS + 1);
+    }
+}
@@ -0,0 +1,116 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+// Ответ GET /films на 100 000 фильмов с описаниями до 200 символов: время сериализации
+// и размер тела (счетчик bytes) для JSON, Smile и CBOR, без сжатия и с gzip, как его делает Tomcat.
+// ObjectMapper берутся из контекста приложения, чтобы настройки совпадали с боевыми.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseFormatBenchmark {
+
+    private static final int FILMS = 100_000;
+    private static final String[] WORDS = {"фильм", "история", "герой", "город", "любовь", "война", "семья",
+            "путешествие", "тайна", "друзья", "детектив", "комедия", "о", "и", "в", "на", "после", "между"};
+
+    @Param({"json", "smile", "cbor"})
+    public String format;
+
+    private ConfigurableApplicationContext context;
+    private ObjectMapper mapper;
+    private List<Film> films;
+
+    // Размер тела последнего ответа: он одинаков для всех вызовов, поэтому не суммируется.
+    // В итоговой таблице JMH складывает счетчик по итерациям, размер ответа — в строках итераций.
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Size {
+        public long bytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkDatabase.start(0, 0, 0, 0);
+        mapper = switch (format) {
+            case "json" -> context.getBean(ObjectMapper.class);
+            case "smile" -> context.getBean(MappingJackson2SmileHttpMessageConverter.class).getObjectMapper();
+            case "cbor" -> context.getBean(MappingJackson2CborHttpMessageConverter.class).getObjectMapper();
+            default -> throw new IllegalArgumentException(format);
+        };
+        Random random = new Random(42);
+        films = new ArrayList<>(FILMS);
+        for (long id = 1; id <= FILMS; id++) {
+            StringBuilder description = new StringBuilder();
+            int length = 50 + random.nextInt(150);
+            while (description.length() < length) {
+                description.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+            films.add(Film.builder()
+                    .id(id)
+                    .name("Фильм " + id)
+                    .description(description.substring(0, Math.min(description.length(), 200)).trim())
+                    .releaseDate(LocalDate.of(1950, 1, 1).plusDays(random.nextInt(25_000)))
+                    .duration(60 + random.nextInt(120))
+                    .mpa(new Mpa(1 + random.nextInt(5), "PG"))
+                    .genres(Set.of(new Genre(1 + random.nextInt(6), "Драма")))
+                    .build());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] serialize(Size size) throws IOException {
+        byte[] body = mapper.writeValueAsBytes(films);
+        size.bytes = body.length;
+        return body;
+    }
+
+    @Benchmark
+    public byte[] serializeGzip(Size size) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+            mapper.writeValue(gzip, films);
+        }
+        byte[] body = buffer.toByteArray();
+        size.bytes = body.length;
+        return body;
+    }
+}
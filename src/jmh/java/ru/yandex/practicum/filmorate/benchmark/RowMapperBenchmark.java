@@ -0,0 +1,198 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.RowMapper;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.mapper.FilmRowMapper;
+import ru.yandex.practicum.filmorate.storage.mapper.IndexedRowMapper;
+import ru.yandex.practicum.filmorate.storage.mapper.UserRowMapper;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+// Стоимость одной строки при чтении фильмов и пользователей из живого ResultSet H2.
+// legacy* — прежние мапперы: SELECT *, поиск колонок по имени в каждой строке,
+// MpaMapper на строку и java.sql.Date. scan* — только выполнение запроса и обход строк,
+// разница с ними — цена маппинга.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowMapperBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    private static final String LEGACY_FILMS_QUERY = """
+            SELECT *
+            FROM FILMS AS f
+            LEFT JOIN MPA AS r ON  f.RATING_ID = r.RATING_ID
+            ORDER BY f.FILMS_ID;
+            """;
+    private static final String FILMS_QUERY = """
+            SELECT f.FILMS_ID, f.NAME, f.DESCRIPTION, f.RELEASE_DATE, f.DURATION, f.RATING_ID, r.MPA_NAME
+            FROM FILMS AS f
+            LEFT JOIN MPA AS r ON  f.RATING_ID = r.RATING_ID
+            ORDER BY f.FILMS_ID;
+            """;
+    private static final String LEGACY_USERS_QUERY = """
+            SELECT *
+            FROM USERS
+            ORDER BY USER_ID;
+            """;
+    private static final String USERS_QUERY = """
+            SELECT USER_ID, EMAIL, LOGIN, NAME, BIRTHDAY
+            FROM USERS
+            ORDER BY USER_ID;
+            """;
+
+    private ConfigurableApplicationContext context;
+    private Connection connection;
+    private PreparedStatement legacyFilms;
+    private PreparedStatement films;
+    private PreparedStatement legacyUsers;
+    private PreparedStatement users;
+    private FilmRowMapper filmRowMapper;
+    private UserRowMapper userRowMapper;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        context = BenchmarkDatabase.start(ROWS, ROWS, 0, 0);
+        filmRowMapper = context.getBean(FilmRowMapper.class);
+        userRowMapper = context.getBean(UserRowMapper.class);
+        connection = context.getBean(DataSource.class).getConnection();
+        legacyFilms = connection.prepareStatement(LEGACY_FILMS_QUERY);
+        films = connection.prepareStatement(FILMS_QUERY);
+        legacyUsers = connection.prepareStatement(LEGACY_USERS_QUERY);
+        users = connection.prepareStatement(USERS_QUERY);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void scanLegacyFilms(Blackhole blackhole) throws SQLException {
+        scan(legacyFilms, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void scanFilms(Blackhole blackhole) throws SQLException {
+        scan(films, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void legacyFilms(Blackhole blackhole) throws SQLException {
+        map(legacyFilms, RowMapperBenchmark::legacyFilm, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void films(Blackhole blackhole) throws SQLException {
+        mapBound(films, filmRowMapper, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void scanLegacyUsers(Blackhole blackhole) throws SQLException {
+        scan(legacyUsers, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void scanUsers(Blackhole blackhole) throws SQLException {
+        scan(users, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void legacyUsers(Blackhole blackhole) throws SQLException {
+        map(legacyUsers, RowMapperBenchmark::legacyUser, blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void users(Blackhole blackhole) throws SQLException {
+        mapBound(users, userRowMapper, blackhole);
+    }
+
+    private static void scan(PreparedStatement statement, Blackhole blackhole) throws SQLException {
+        try (ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                blackhole.consume(rs);
+            }
+        }
+    }
+
+    private static <T> void map(PreparedStatement statement, RowMapper<T> mapper, Blackhole blackhole)
+            throws SQLException {
+        try (ResultSet rs = statement.executeQuery()) {
+            int rowNum = 0;
+            while (rs.next()) {
+                blackhole.consume(mapper.mapRow(rs, rowNum++));
+            }
+        }
+    }
+
+    private static <T> void mapBound(PreparedStatement statement, IndexedRowMapper<T> mapper, Blackhole blackhole)
+            throws SQLException {
+        try (ResultSet rs = statement.executeQuery()) {
+            map(rs, mapper.bind(rs), blackhole);
+        }
+    }
+
+    private static <T> void map(ResultSet rs, RowMapper<T> mapper, Blackhole blackhole) throws SQLException {
+        int rowNum = 0;
+        while (rs.next()) {
+            blackhole.consume(mapper.mapRow(rs, rowNum++));
+        }
+    }
+
+    // Прежние FilmRowMapper с MpaMapper и UserRowMapper, для сравнения.
+    private static Film legacyFilm(ResultSet rs, int rowNum) throws SQLException {
+        Film film = new Film();
+        film.setId(rs.getLong("FILMS_ID"));
+        film.setName(rs.getString("NAME"));
+        film.setDescription(rs.getString("DESCRIPTION"));
+        film.setReleaseDate(rs.getDate("RELEASE_DATE").toLocalDate());
+        film.setDuration(rs.getInt("DURATION"));
+        film.setMpa(new Mpa(rs.getInt("RATING_ID"), rs.getString("MPA_NAME")));
+        return film;
+    }
+
+    private static User legacyUser(ResultSet rs, int rowNum) throws SQLException {
+        User user = new User();
+        user.setId(rs.getLong("USER_ID"));
+        user.setName(rs.getString("NAME"));
+        user.setEmail(rs.getString("EMAIL"));
+        user.setLogin(rs.getString("LOGIN"));
+        user.setBirthday(rs.getDate("BIRTHDAY").toLocalDate());
+        return user;
+    }
+}
@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.mapper.UserRowMapper;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Друзья из графа в памяти (UserDbStorage) против прежних SQL-запросов по таблице FRIENDS.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class UserStorageBenchmark {
+
+    private static final String LEGACY_FIND_ALL_FRIENDS_QUERY = """
+            SELECT *
+            FROM USERS AS u
+            WHERE USER_ID IN (
+                SELECT FRIEND_ID
+                FROM FRIENDS
+                WHERE USER_ID = ?
+                );
+            """;
+    private static final String LEGACY_FIND_COMMON_FRIENDS_QUERY = """
+            SELECT *
+            FROM USERS AS u
+            WHERE u.USER_ID IN (
+                SELECT friends_of_first.friend
+                FROM (
+                    SELECT FRIEND_ID AS friend FROM FRIENDS WHERE USER_ID = ?
+                    UNION
+                    SELECT USER_ID AS friend FROM FRIENDS WHERE FRIEND_ID = ?
+                    ) AS friends_of_first
+                JOIN (
+                    SELECT FRIEND_ID AS friend FROM FRIENDS WHERE USER_ID = ?
+                    UNION
+                    SELECT USER_ID AS friend FROM FRIENDS WHERE FRIEND_ID = ?
+                    ) AS friends_of_second
+                ON friends_of_first.friend = friends_of_second.friend
+            );
+            """;
+    // Для 1 000 000 пользователей это 10 млн строк FRIENDS, больше не помещается в -Xmx4g.
+    private static final int FRIENDS_PER_USER = 10;
+
+    @Param({"10000", "1000000"})
+    public int users;
+
+    private ConfigurableApplicationContext context;
+    private UserDbStorage userDbStorage;
+    private JdbcTemplate jdbc;
+    private UserRowMapper userRowMapper;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkDatabase.start(100, users, 0, FRIENDS_PER_USER);
+        userDbStorage = context.getBean(UserDbStorage.class);
+        jdbc = context.getBean(JdbcTemplate.class);
+        userRowMapper = context.getBean(UserRowMapper.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Collection<User> findAllFriends() {
+        return userDbStorage.findAllFriends(randomUserId());
+    }
+
+    @Benchmark
+    public List<User> findAllFriendsSql() {
+        return jdbc.query(LEGACY_FIND_ALL_FRIENDS_QUERY, userRowMapper, randomUserId());
+    }
+
+    @Benchmark
+    public Collection<User> findCommonFriends() {
+        return userDbStorage.findCommonFriends(randomUserId(), randomUserId());
+    }
+
+    @Benchmark
+    public List<User> findCommonFriendsSql() {
+        long id = randomUserId();
+        long otherId = randomUserId();
+        return jdbc.query(LEGACY_FIND_COMMON_FRIENDS_QUERY, userRowMapper, id, id, otherId, otherId);
+    }
+
+    private long randomUserId() {
+        return 1 + ThreadLocalRandom.current().nextInt(users);
+    }
+}
@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import ru.yandex.practicum.filmorate.exceptions.ServiceOverloadedException;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Ограничивает число одновременно занятых соединений размером пула. Разрешение берется перед
+// получением соединения (см. AdmissionControlDataSource), поэтому запросы, которые обходятся
+// кэшем или ответом 304, не ждут. Первое обращение запроса к БД ждет разрешения не дольше
+// max-wait в очереди не длиннее max-queue, иначе запрос получает 503. Запрос, уже получивший
+// соединение, и фоновые задачи не отклоняются, а ждут, чтобы не прерывать начатую запись.
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.admission.enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionControl {
+
+    private static final String ADMITTED = AdmissionControl.class.getName() + ".ADMITTED";
+
+    private final Semaphore permits;
+    private final int maxQueue;
+    private final long maxWaitNanos;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Timer admittedWait;
+    private final Timer rejectedWait;
+
+    public AdmissionControl(@Value("${filmorate.admission.max-concurrent:${spring.datasource.hikari.maximum-pool-size:10}}")
+                            int maxConcurrent,
+                            @Value("${filmorate.admission.max-queue:100}") int maxQueue,
+                            @Value("${filmorate.admission.max-wait:PT0.5S}") Duration maxWait,
+                            MeterRegistry meterRegistry) {
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxQueue = maxQueue;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.admittedWait = Timer.builder("filmorate.admission.wait")
+                .description("Время ожидания разрешения на соединение с БД")
+                .tag("outcome", "admitted")
+                .register(meterRegistry);
+        this.rejectedWait = Timer.builder("filmorate.admission.wait")
+                .description("Время ожидания разрешения на соединение с БД")
+                .tag("outcome", "rejected")
+                .register(meterRegistry);
+        Gauge.builder("filmorate.admission.queued", queued, AtomicInteger::get)
+                .description("Число запросов, ожидающих разрешения")
+                .register(meterRegistry);
+        Gauge.builder("filmorate.admission.in-flight", permits, semaphore -> maxConcurrent - semaphore.availablePermits())
+                .description("Число занятых соединений с БД")
+                .register(meterRegistry);
+        log.info("Ограничение одновременных соединений: {}, очередь {}, ожидание {}", maxConcurrent, maxQueue, maxWait);
+    }
+
+    public void acquire() {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request == null || request.getAttribute(ADMITTED, RequestAttributes.SCOPE_REQUEST) != null) {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServiceOverloadedException("Ожидание соединения с БД прервано");
+            }
+            return;
+        }
+        long start = System.nanoTime();
+        if (!tryAcquire()) {
+            rejectedWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw new ServiceOverloadedException("Сервис перегружен");
+        }
+        admittedWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        request.setAttribute(ADMITTED, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    private boolean tryAcquire() {
+        if (permits.tryAcquire()) {
+            return true;
+        }
+        if (queued.incrementAndGet() > maxQueue) {
+            queued.decrementAndGet();
+            return false;
+        }
+        try {
+            return permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+// Оборачивает пул соединений в AdmissionControlDataSource. AdmissionControl берется лениво:
+// постпроцессор создается раньше остальных бинов и не должен тянуть за собой MeterRegistry.
+@Configuration
+@ConditionalOnProperty(name = "filmorate.admission.enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionControlConfiguration {
+
+    @Bean
+    public static BeanPostProcessor admissionControlDataSourcePostProcessor(
+            ObjectProvider<AdmissionControl> admissionControl) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof AdmissionControlDataSource)) {
+                    return new AdmissionControlDataSource(dataSource, admissionControl);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,94 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Берет разрешение AdmissionControl перед получением соединения из пула и возвращает его
+// при закрытии соединения. Потоковый ответ держит разрешение, пока читает результат.
+// Вложенные соединения того же потока (например, Flyway или REQUIRES_NEW) используют
+// уже взятое разрешение, иначе поток ждал бы сам себя.
+public class AdmissionControlDataSource extends DelegatingDataSource {
+
+    private final ObjectProvider<AdmissionControl> admissionControl;
+    private final ThreadLocal<AtomicInteger> openConnections = ThreadLocal.withInitial(AtomicInteger::new);
+
+    public AdmissionControlDataSource(DataSource target, ObjectProvider<AdmissionControl> admissionControl) {
+        super(target);
+        this.admissionControl = admissionControl;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return admitted(() -> obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return admitted(() -> obtainTargetDataSource().getConnection(username, password));
+    }
+
+    private Connection admitted(ConnectionSupplier supplier) throws SQLException {
+        AdmissionControl control = admissionControl.getIfAvailable();
+        if (control == null) {
+            return supplier.get();
+        }
+        AtomicInteger open = openConnections.get();
+        boolean owner = open.get() == 0;
+        if (owner) {
+            control.acquire();
+        }
+        try {
+            Connection connection = supplier.get();
+            open.incrementAndGet();
+            return releasingOnClose(connection, open, owner ? control : null);
+        } catch (SQLException | RuntimeException e) {
+            if (owner) {
+                control.release();
+            }
+            throw e;
+        }
+    }
+
+    // Счетчик захвачен при открытии: потоковый ответ может закрыть соединение в другом потоке
+    private static Connection releasingOnClose(Connection connection, AtomicInteger open, AdmissionControl control) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "equals" -> {
+                            return proxy == args[0];
+                        }
+                        case "hashCode" -> {
+                            return System.identityHashCode(proxy);
+                        }
+                        default -> {
+                        }
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    } finally {
+                        if (method.getName().equals("close") && released.compareAndSet(false, true)) {
+                            open.decrementAndGet();
+                            if (control != null) {
+                                control.release();
+                            }
+                        }
+                    }
+                });
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSupplier {
+        Connection get() throws SQLException;
+    }
+}
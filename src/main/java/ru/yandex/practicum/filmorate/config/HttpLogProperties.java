@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties("filmorate.http-log")
+public class HttpLogProperties {
+    // Доля логируемых GET-запросов по шаблону пути, например sample-rates[/films]=0.1.
+    private Map<String, Double> sampleRates = new LinkedHashMap<>();
+    private double defaultSampleRate = 1.0;
+    // Шаблоны путей, по которым ответы на GET-запросы логируются без тела.
+    private List<String> withoutBody = new ArrayList<>();
+}
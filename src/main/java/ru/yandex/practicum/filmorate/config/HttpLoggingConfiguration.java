@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Strategy;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+// Логирование HTTP через Logbook: GET-запросы логируются выборочно с долей по шаблону пути,
+// ответы массовых выборок пишутся без тела. Запросы на изменение логируются всегда.
+@Configuration
+@EnableConfigurationProperties(HttpLogProperties.class)
+public class HttpLoggingConfiguration {
+
+    // Имя совпадает с бином Logbook, поэтому он заменяет условие по умолчанию;
+    // исключения из logbook.predicate.exclude продолжают действовать.
+    @Bean
+    public Predicate<HttpRequest> requestCondition(HttpLogProperties properties) {
+        List<Map.Entry<PathPattern, Double>> sampleRates = properties.getSampleRates().entrySet().stream()
+                .map(entry -> Map.entry(PathPatternParser.defaultInstance.parse(entry.getKey()), entry.getValue()))
+                .sorted(Map.Entry.comparingByKey(PathPattern.SPECIFICITY_COMPARATOR))
+                .toList();
+        double defaultSampleRate = properties.getDefaultSampleRate();
+        return request -> {
+            if (!isRead(request)) {
+                return true;
+            }
+            PathContainer path = PathContainer.parsePath(request.getPath());
+            double rate = sampleRates.stream()
+                    .filter(entry -> entry.getKey().matches(path))
+                    .map(Map.Entry::getValue)
+                    .findFirst()
+                    .orElse(defaultSampleRate);
+            return rate >= 1.0 || ThreadLocalRandom.current().nextDouble() < rate;
+        };
+    }
+
+    @Bean
+    public Strategy strategy(HttpLogProperties properties) {
+        List<PathPattern> withoutBody = properties.getWithoutBody().stream()
+                .map(PathPatternParser.defaultInstance::parse)
+                .toList();
+        return new Strategy() {
+            @Override
+            public HttpResponse process(HttpRequest request, HttpResponse response) throws IOException {
+                if (isRead(request) && matches(withoutBody, request)) {
+                    return response.withoutBody();
+                }
+                return response.withBody();
+            }
+        };
+    }
+
+    private static boolean isRead(HttpRequest request) {
+        return "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod());
+    }
+
+    private static boolean matches(List<PathPattern> patterns, HttpRequest request) {
+        PathContainer path = PathContainer.parsePath(request.getPath());
+        return patterns.stream().anyMatch(pattern -> pattern.matches(path));
+    }
+}
@@ -1,15 +1,24 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
 import ru.yandex.practicum.filmorate.service.film.FilmService;
 
 import java.util.Collection;
+import java.util.List;
 
 @Validated
 @Slf4j
@@ -18,15 +27,43 @@ import java.util.Collection;
 @RequestMapping("/films")
 public class FilmController {
 
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 1000;
+
     private final FilmService filmService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
-    public Collection<Film> findAll() {
-        return filmService.getAll();
+    public Collection<Film> findAll(@RequestParam(required = false) @PositiveOrZero Long after,
+                                    @RequestParam(required = false) @Positive @Max(MAX_PAGE_SIZE) Integer limit) {
+        if (after == null && limit == null) {
+            return filmService.getAll();
+        }
+        return filmService.getPage(
+                after == null ? 0 : after,
+                limit == null ? DEFAULT_PAGE_SIZE : limit);
+    }
+
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        return JsonArrayStream.of(objectMapper, filmService::streamAll);
     }
 
+    @GetMapping("/search")
+    public Collection<Film> search(@RequestParam String q,
+                                   @RequestParam(defaultValue = "title,description") List<String> by,
+                                   @RequestParam(defaultValue = "0") @PositiveOrZero Integer offset,
+                                   @RequestParam(defaultValue = "10") @Positive @Max(MAX_PAGE_SIZE) Integer limit) {
+        return filmService.search(q, by, offset, limit);
+    }
+
+    // ETag берется до чтения фильма: если фильм изменится между ними, ответ получит старый ETag
+    // и следующий запрос просто прочитает фильм заново.
     @GetMapping("/{id}")
-    public Film getById(@PathVariable long id) {
+    public Film getById(@PathVariable long id, WebRequest request) {
+        if (request.checkNotModified(filmService.getETag(id))) {
+            return null;
+        }
         return filmService.get(id);
     }
 
@@ -52,19 +89,31 @@ public class FilmController {
 
     @PutMapping("/{id}/like/{userId}")
     public Film addLike(@PathVariable long id, @PathVariable long userId) {
-        filmService.addLike(id, userId);
-        return filmService.get(id);
+        return filmService.addLikeAndGet(id, userId);
     }
 
     @DeleteMapping("/{id}/like/{userId}")
     public Film deleteLike(@PathVariable long id, @PathVariable long userId) {
-        filmService.deleteLike(id, userId);
-        return filmService.get(id);
+        return filmService.deleteLikeAndGet(id, userId);
+    }
+
+    @PostMapping("/likes:batch")
+    public List<BatchItemResult> applyLikes(@RequestBody List<LikeOperation> operations) {
+        return filmService.applyLikes(operations);
     }
 
     @GetMapping("/popular")
     public Collection<Film> getPopular(
-            @RequestParam(defaultValue = "10") @Positive Long count) {
+            @RequestParam(defaultValue = "10") @Positive Long count, WebRequest request) {
+        if (request.checkNotModified(filmService.getPopularETag())) {
+            return null;
+        }
         return filmService.getPopular(count);
     }
+
+    @GetMapping("/trending")
+    public Collection<Film> getTrending(@RequestParam(defaultValue = "24h") String window,
+                                        @RequestParam(defaultValue = "10") @Positive @Max(MAX_PAGE_SIZE) Integer count) {
+        return filmService.getTrending(window, count);
+    }
 }
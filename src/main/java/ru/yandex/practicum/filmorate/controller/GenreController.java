@@ -5,6 +5,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.service.genre.GenreService;
 
@@ -17,13 +18,23 @@ public class GenreController {
     private final GenreService service;
 
     @GetMapping
-    public Collection<Genre> findAll() {
+    public Collection<Genre> findAll(WebRequest request) {
+        if (request.checkNotModified(service.getETag())) {
+            return null;
+        }
         return service.findAll();
     }
 
+    // ETag общий для всего справочника, поэтому сначала проверяется id: иначе на неизвестный id
+    // с совпавшим If-None-Match пришел бы 304 вместо 404. Обе проверки идут по кэшу, без БД.
     @GetMapping("/{id}")
-    public Genre findById(@PathVariable int id) {
-        return service.findById(id);
+    public Genre findById(@PathVariable int id, WebRequest request) {
+        String etag = service.getETag();
+        Genre genre = service.findById(id);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return genre;
     }
 
 }
\ No newline at end of file
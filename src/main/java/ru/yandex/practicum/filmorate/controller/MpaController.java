@@ -5,6 +5,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.service.mpa.MpaService;
 
@@ -17,12 +18,22 @@ public class MpaController {
     private final MpaService service;
 
     @GetMapping
-    public Collection<Mpa> findAll() {
+    public Collection<Mpa> findAll(WebRequest request) {
+        if (request.checkNotModified(service.getETag())) {
+            return null;
+        }
         return service.findAll();
     }
 
+    // ETag общий для всего справочника, поэтому сначала проверяется id: иначе на неизвестный id
+    // с совпавшим If-None-Match пришел бы 304 вместо 404. Обе проверки идут по кэшу, без БД.
     @GetMapping("/{id}")
-    public Mpa findById(@PathVariable int id) {
-        return service.findById(id);
+    public Mpa findById(@PathVariable int id, WebRequest request) {
+        String etag = service.getETag();
+        Mpa mpa = service.findById(id);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return mpa;
     }
 }
\ No newline at end of file
@@ -1,25 +1,53 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendshipOperation;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.user.UserService;
 
 import java.util.Collection;
+import java.util.List;
 
+@Validated
 @Slf4j
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/users")
 public class UserController {
 
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 1000;
+
     private final UserService userService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
-    public Collection<User> findAll() {
-        return userService.getAll();
+    public Collection<User> findAll(@RequestParam(required = false) @PositiveOrZero Long after,
+                                    @RequestParam(required = false) @Positive @Max(MAX_PAGE_SIZE) Integer limit) {
+        if (after == null && limit == null) {
+            return userService.getAll();
+        }
+        return userService.getPage(
+                after == null ? 0 : after,
+                limit == null ? DEFAULT_PAGE_SIZE : limit);
+    }
+
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        return JsonArrayStream.of(objectMapper, userService::streamAll);
     }
 
     @PostMapping
@@ -29,7 +57,10 @@ public class UserController {
     }
 
     @GetMapping("/{id}")
-    public User getById(@PathVariable long id) {
+    public User getById(@PathVariable long id, WebRequest request) {
+        if (request.checkNotModified(userService.getETag(id))) {
+            return null;
+        }
         return userService.get(id);
     }
 
@@ -47,9 +78,9 @@ public class UserController {
 
     @PutMapping("/{id}/friends/{friendId}")
     public User create(@PathVariable long id, @PathVariable long friendId) {
-        userService.addFriend(id, friendId);
+        User friend = userService.addFriendAndGet(id, friendId);
         log.info("Пользователь добавлен в список друзей");
-        return userService.get(friendId);
+        return friend;
     }
 
     @DeleteMapping("/{id}/friends/{friendId}")
@@ -57,6 +88,11 @@ public class UserController {
         userService.deleteFromFriends(id, friendId);
     }
 
+    @PostMapping("/friends:batch")
+    public List<BatchItemResult> applyFriendships(@RequestBody List<FriendshipOperation> operations) {
+        return userService.applyFriendships(operations);
+    }
+
     @GetMapping("/{id}/friends")
     public Collection<User> getAllFriends(@PathVariable long id) {
         return userService.getAllFriends(id);
@@ -67,4 +103,10 @@ public class UserController {
         return userService.getCommonFriends(id, otherId);
     }
 
+    @GetMapping("/{id}/recommendations")
+    public Collection<Film> getRecommendations(@PathVariable long id,
+                                               @RequestParam(defaultValue = "10") @Positive Integer count) {
+        return userService.getRecommendations(id, count);
+    }
+
 }
@@ -2,8 +2,10 @@ package ru.yandex.practicum.filmorate.exceptions;
 
 import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -40,6 +42,25 @@ public class ErrorHandler {
         return Map.of("Ресурс не найден", e.getMessage());
     }
 
+    @ExceptionHandler
+    public ResponseEntity<Map<String, String>> handleOverloadError(final ServiceOverloadedException e) {
+        log.warn("error 503 {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("Сервис перегружен", "Повторите запрос позже"));
+    }
+
+    // Транзакция оборачивает ошибку получения соединения, в том числе отказ по перегрузке.
+    @ExceptionHandler
+    public ResponseEntity<Map<String, String>> handleTransactionError(final CannotCreateTransactionException e) {
+        if (e.getCause() instanceof ServiceOverloadedException overloaded) {
+            return handleOverloadError(overloaded);
+        }
+        log.error("Не удалось начать транзакцию", e);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("Произошла ошибка!", e.getMessage()));
+    }
+
     @ExceptionHandler
     public ResponseEntity<String> handlerPositiveCountError(ConstraintViolationException e) {
         log.debug("Получен статус 404 Not found {}", e.getMessage(), e);
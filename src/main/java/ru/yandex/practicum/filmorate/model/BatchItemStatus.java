@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.model;
+
+public enum BatchItemStatus {
+    OK,
+    UNCHANGED,
+    NOT_FOUND,
+    INVALID
+}
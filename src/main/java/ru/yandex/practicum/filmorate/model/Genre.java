@@ -1,15 +1,20 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.NotBlank;
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.Value;
 
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
+// Неизменяемый: загруженные фильмы разделяют канонические экземпляры жанров.
+@Value
 public class Genre {
     @NotBlank
-    private int id;
-    private String name;
-}
\ No newline at end of file
+    int id;
+    String name;
+
+    @JsonCreator
+    public Genre(@JsonProperty("id") int id, @JsonProperty("name") String name) {
+        this.id = id;
+        this.name = name;
+    }
+}
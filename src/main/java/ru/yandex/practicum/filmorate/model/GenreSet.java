@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Неизменяемое множество жанров фильма в виде битовой маски по id жанра.
+// Экземпляры жанров берутся из общей таблицы по id, поэтому на фильм приходится один объект
+// с полем long вместо LinkedHashSet с узлами. Жанры перебираются по возрастанию id.
+public final class GenreSet extends AbstractSet<Genre> {
+
+    public static final int MAX_ID = Long.SIZE - 1;
+
+    private static final GenreSet EMPTY = new GenreSet(new Genre[0], 0);
+
+    private final Genre[] byId;
+    private final long mask;
+
+    private GenreSet(Genre[] byId, long mask) {
+        this.byId = byId;
+        this.mask = mask;
+    }
+
+    // В byId должны быть жанры со всеми id из mask; массив не копируется и не должен меняться.
+    public static GenreSet of(Genre[] byId, long mask) {
+        return mask == 0 ? EMPTY : new GenreSet(byId, mask);
+    }
+
+    public static boolean fits(int genreId) {
+        return genreId >= 0 && genreId <= MAX_ID;
+    }
+
+    @Override
+    public int size() {
+        return Long.bitCount(mask);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Genre genre
+                && fits(genre.getId())
+                && (mask & 1L << genre.getId()) != 0
+                && byId[genre.getId()].equals(genre);
+    }
+
+    @Override
+    public Iterator<Genre> iterator() {
+        return new Iterator<>() {
+            private long remaining = mask;
+
+            @Override
+            public boolean hasNext() {
+                return remaining != 0;
+            }
+
+            @Override
+            public Genre next() {
+                if (remaining == 0) {
+                    throw new NoSuchElementException();
+                }
+                int genreId = Long.numberOfTrailingZeros(remaining);
+                remaining &= remaining - 1;
+                return byId[genreId];
+            }
+        };
+    }
+}
@@ -7,8 +7,8 @@ import lombok.NoArgsConstructor;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class FilmGenre {
+public class LikeOperation {
     private Long filmId;
-    private int genreId;
-    private String genre;
-}
\ No newline at end of file
+    private Long userId;
+    private BatchAction action = BatchAction.ADD;
+}
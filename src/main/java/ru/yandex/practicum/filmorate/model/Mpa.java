@@ -1,21 +1,26 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.NotBlank;
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.Value;
 
-@Data
-@AllArgsConstructor
-@NoArgsConstructor
+// Неизменяемый: загруженные фильмы разделяют канонические экземпляры рейтингов.
+@Value
 public class Mpa {
 
     @NotBlank
-    private int id;
-    private String name;
+    int id;
+    String name;
 
-    public Mpa(int id) {
+    @JsonCreator
+    public Mpa(@JsonProperty("id") int id, @JsonProperty("name") String name) {
         this.id = id;
+        this.name = name;
+    }
+
+    public Mpa(int id) {
+        this(id, null);
     }
 
-}
\ No newline at end of file
+}
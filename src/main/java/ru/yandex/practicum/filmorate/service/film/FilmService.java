@@ -1,12 +1,20 @@
 package ru.yandex.practicum.filmorate.service.film;
 
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
 
 public interface FilmService {
     Collection<Film> getAll();
 
+    Collection<Film> getPage(long after, int limit);
+
+    void streamAll(Consumer<Film> consumer);
+
     void create(Film film);
 
     void update(Film newFilm);
@@ -19,5 +27,19 @@ public interface FilmService {
 
     void deleteLike(Long id, Long userId);
 
+    Film addLikeAndGet(Long id, Long userId);
+
+    Film deleteLikeAndGet(Long id, Long userId);
+
+    List<BatchItemResult> applyLikes(List<LikeOperation> operations);
+
     Collection<Film> getPopular(Long count);
+
+    Collection<Film> getTrending(String window, int count);
+
+    String getETag(long id);
+
+    String getPopularETag();
+
+    Collection<Film> search(String query, List<String> by, int offset, int limit);
 }
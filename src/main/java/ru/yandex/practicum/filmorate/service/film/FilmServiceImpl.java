@@ -3,12 +3,21 @@ package ru.yandex.practicum.filmorate.service.film;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.storage.film.FilmSearchIndex;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.TrendingFilmsIndex;
 
 
 import java.time.LocalDate;
 import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 
 @Service
@@ -17,6 +26,9 @@ public class FilmServiceImpl implements FilmService {
 
     private FilmStorage filmStorage;
 
+    // Есть только при filmorate.likes.write-behind.enabled=true.
+    private Optional<LikeWriteBehind> likeWriteBehind;
+
     static final LocalDate dateOfFirstFilm = LocalDate.of(1895, 1, 28);
 
     @Override
@@ -24,6 +36,16 @@ public class FilmServiceImpl implements FilmService {
         return filmStorage.findAll();
     }
 
+    @Override
+    public Collection<Film> getPage(long after, int limit) {
+        return filmStorage.findPage(after, limit);
+    }
+
+    @Override
+    public void streamAll(Consumer<Film> consumer) {
+        filmStorage.streamAll(consumer);
+    }
+
     @Override
     public void create(Film film) {
         validate(film);
@@ -48,19 +70,75 @@ public class FilmServiceImpl implements FilmService {
 
     @Override
     public void addLike(Long id, Long userId) {
+        if (likeWriteBehind.isPresent()) {
+            likeWriteBehind.get().addLike(id, userId);
+            return;
+        }
         filmStorage.addLike(id, userId);
     }
 
     @Override
     public void deleteLike(Long id, Long userId) {
+        if (likeWriteBehind.isPresent()) {
+            likeWriteBehind.get().deleteLike(id, userId);
+            return;
+        }
         filmStorage.deleteLike(id, userId);
     }
 
+    // Чтение идет после записи в потоке запроса: запрос занимает одно соединение с БД.
+    @Override
+    public Film addLikeAndGet(Long id, Long userId) {
+        addLike(id, userId);
+        return get(id);
+    }
+
+    @Override
+    public Film deleteLikeAndGet(Long id, Long userId) {
+        deleteLike(id, userId);
+        return get(id);
+    }
+
+    @Override
+    public List<BatchItemResult> applyLikes(List<LikeOperation> operations) {
+        return filmStorage.applyLikes(operations);
+    }
+
     @Override
     public Collection<Film> getPopular(Long count) {
         return filmStorage.getPopular(count);
     }
 
+    @Override
+    public Collection<Film> getTrending(String window, int count) {
+        TrendingFilmsIndex.Window trendingWindow = TrendingFilmsIndex.Window.of(window)
+                .orElseThrow(() -> new ValidationException("Окно трендов может быть 1h, 24h или 7d, передано: " + window));
+        return filmStorage.getTrending(trendingWindow, count);
+    }
+
+    @Override
+    public String getETag(long id) {
+        return filmStorage.getETag(id);
+    }
+
+    @Override
+    public String getPopularETag() {
+        return filmStorage.getPopularETag();
+    }
+
+    @Override
+    public Collection<Film> search(String query, List<String> by, int offset, int limit) {
+        Set<FilmSearchIndex.Field> fields = EnumSet.noneOf(FilmSearchIndex.Field.class);
+        for (String field : by) {
+            switch (field.trim().toLowerCase()) {
+                case "title" -> fields.add(FilmSearchIndex.Field.TITLE);
+                case "description" -> fields.add(FilmSearchIndex.Field.DESCRIPTION);
+                default -> throw new ValidationException("Поиск возможен только по title и description, передано: " + field);
+            }
+        }
+        return filmStorage.search(query, fields, offset, limit);
+    }
+
     private void validate(Film film) {
         if (film != null) {
             if (film.getReleaseDate().isBefore(dateOfFirstFilm)) {
@@ -0,0 +1,275 @@
+package ru.yandex.practicum.filmorate.service.film;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.BatchAction;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.BatchItemStatus;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Отложенная запись лайков: события копятся в ограниченной очереди и пишутся в LIKES пачками
+// по размеру или по таймеру. Для одной пары (фильм, пользователь) в пачку попадает только
+// последнее действие, поэтому лайк и следующая за ним отмена дают одну операцию.
+// При переполнении очереди вызывающий поток сам сбрасывает её в БД.
+// Пачка, которая не записалась max-attempts раз подряд, пишется по одной операции:
+// операции с ошибкой отбрасываются и учитываются в счетчике failed.
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.likes.write-behind.enabled", havingValue = "true")
+public class LikeWriteBehind implements MeterBinder {
+
+    private final FilmStorage filmStorage;
+    private final int capacity;
+    private final int batchSize;
+    private final int maxAttempts;
+
+    private final ConcurrentLinkedDeque<LikeOperation> queue = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicLong flushedOperations = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong flushNanosTotal = new AtomicLong();
+    private final AtomicLong flushNanosMax = new AtomicLong();
+    private final AtomicLong callerRunsFlushes = new AtomicLong();
+    private final AtomicLong failedOperations = new AtomicLong();
+    // Число неудачных попыток записать пачку из начала очереди, меняется под flushLock.
+    private int failedAttempts;
+
+    public LikeWriteBehind(FilmStorage filmStorage,
+                           @Value("${filmorate.likes.write-behind.capacity:10000}") int capacity,
+                           @Value("${filmorate.likes.write-behind.batch-size:500}") int batchSize,
+                           @Value("${filmorate.likes.write-behind.flush-interval:PT0.2S}") Duration flushInterval,
+                           @Value("${filmorate.likes.write-behind.max-attempts:3}") int maxAttempts) {
+        this.filmStorage = filmStorage;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "likes-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = flushInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        log.info("Включена отложенная запись лайков: очередь {}, пачка {}, интервал {}, попыток {}",
+                capacity, batchSize, flushInterval, maxAttempts);
+    }
+
+    public void addLike(Long filmId, Long userId) {
+        enqueue(new LikeOperation(filmId, userId, BatchAction.ADD));
+    }
+
+    public void deleteLike(Long filmId, Long userId) {
+        enqueue(new LikeOperation(filmId, userId, BatchAction.REMOVE));
+    }
+
+    public int getQueueDepth() {
+        return size.get();
+    }
+
+    public long getFlushedOperations() {
+        return flushedOperations.get();
+    }
+
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    public long getFlushNanosTotal() {
+        return flushNanosTotal.get();
+    }
+
+    public long getFlushNanosMax() {
+        return flushNanosMax.get();
+    }
+
+    public long getCallerRunsFlushes() {
+        return callerRunsFlushes.get();
+    }
+
+    public long getFailedOperations() {
+        return failedOperations.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("filmorate.likes.write-behind.queue", size, AtomicInteger::get)
+                .description("Число лайков, ожидающих записи в БД")
+                .register(registry);
+        FunctionTimer.builder("filmorate.likes.write-behind.flush", this,
+                        LikeWriteBehind::getFlushCount, LikeWriteBehind::getFlushNanosTotal, TimeUnit.NANOSECONDS)
+                .description("Время записи пачки лайков в БД")
+                .register(registry);
+        TimeGauge.builder("filmorate.likes.write-behind.flush.max", flushNanosMax, TimeUnit.NANOSECONDS,
+                        AtomicLong::get)
+                .register(registry);
+        FunctionCounter.builder("filmorate.likes.write-behind.operations", flushedOperations, AtomicLong::get)
+                .description("Число операций, записанных после слияния")
+                .register(registry);
+        FunctionCounter.builder("filmorate.likes.write-behind.caller-runs", callerRunsFlushes, AtomicLong::get)
+                .description("Число записей в потоке запроса из-за переполнения очереди")
+                .register(registry);
+        FunctionCounter.builder("filmorate.likes.write-behind.failed", failedOperations, AtomicLong::get)
+                .description("Число операций, отброшенных из-за ошибок записи")
+                .register(registry);
+    }
+
+    public void flush() {
+        flushLock.lock();
+        try {
+            // Пишем только то, что было в очереди на момент вызова, чтобы не крутиться под нагрузкой.
+            int pending = size.get();
+            while (pending > 0) {
+                int flushed = flushBatch();
+                if (flushed == 0) {
+                    break;
+                }
+                pending -= flushed;
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        scheduler.shutdown();
+        if (!scheduler.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Поток отложенной записи лайков не завершился вовремя");
+        }
+        flush();
+        log.info("Очередь отложенной записи лайков сброшена в БД");
+    }
+
+    private void enqueue(LikeOperation operation) {
+        while (true) {
+            int current = size.get();
+            if (current >= capacity) {
+                // Очередь заполнена: пишем в БД в потоке запроса, пока не освободится место.
+                callerRunsFlushes.incrementAndGet();
+                flush();
+                continue;
+            }
+            if (size.compareAndSet(current, current + 1)) {
+                break;
+            }
+        }
+        queue.offerLast(operation);
+        if (size.get() >= batchSize && !scheduler.isShutdown() && flushScheduled.compareAndSet(false, true)) {
+            scheduler.execute(() -> {
+                flushScheduled.set(false);
+                flushQuietly();
+            });
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Ошибка отложенной записи лайков, операций в очереди: {}", size.get(), e);
+        }
+    }
+
+    private int flushBatch() {
+        List<LikeOperation> drained = new ArrayList<>(batchSize);
+        LikeOperation operation;
+        while (drained.size() < batchSize && (operation = queue.pollFirst()) != null) {
+            drained.add(operation);
+        }
+        if (drained.isEmpty()) {
+            return 0;
+        }
+
+        // Последнее действие для пары (фильм, пользователь) побеждает.
+        Map<LikeKey, LikeOperation> coalesced = new LinkedHashMap<>();
+        for (LikeOperation item : drained) {
+            LikeKey key = new LikeKey(item.getFilmId(), item.getUserId());
+            coalesced.remove(key);
+            coalesced.put(key, item);
+        }
+        List<LikeOperation> operations = new ArrayList<>(coalesced.values());
+
+        long start = System.nanoTime();
+        List<BatchItemResult> results;
+        try {
+            results = filmStorage.applyLikes(operations);
+        } catch (RuntimeException e) {
+            if (++failedAttempts < maxAttempts) {
+                // Возвращаем события в начало очереди в исходном порядке, чтобы повторить запись.
+                for (int i = drained.size() - 1; i >= 0; i--) {
+                    queue.offerFirst(drained.get(i));
+                }
+                throw e;
+            }
+            log.error("Пачка из {} лайков не записана за {} попыток, записываем по одной",
+                    operations.size(), maxAttempts, e);
+            results = applyOneByOne(operations);
+        }
+        failedAttempts = 0;
+        long elapsed = System.nanoTime() - start;
+        size.addAndGet(-drained.size());
+
+        flushCount.incrementAndGet();
+        flushedOperations.addAndGet(results.size());
+        flushNanosTotal.addAndGet(elapsed);
+        flushNanosMax.accumulateAndGet(elapsed, Math::max);
+        for (BatchItemResult result : results) {
+            if (result.getStatus() == BatchItemStatus.NOT_FOUND || result.getStatus() == BatchItemStatus.INVALID) {
+                LikeOperation rejected = operations.get(result.getIndex());
+                log.warn("Отложенный лайк фильму id = {} от пользователя id = {} не записан: {}",
+                        rejected.getFilmId(), rejected.getUserId(), result.getMessage());
+            }
+        }
+        log.debug("Записано лайков: {} из {} событий за {} мкс",
+                operations.size(), drained.size(), TimeUnit.NANOSECONDS.toMicros(elapsed));
+        return drained.size();
+    }
+
+    // Результаты только для записанных операций; операции с ошибкой отбрасываются.
+    private List<BatchItemResult> applyOneByOne(List<LikeOperation> operations) {
+        List<BatchItemResult> results = new ArrayList<>(operations.size());
+        for (int idx = 0; idx < operations.size(); idx++) {
+            LikeOperation operation = operations.get(idx);
+            try {
+                BatchItemResult result = filmStorage.applyLikes(List.of(operation)).getFirst();
+                results.add(new BatchItemResult(idx, result.getStatus(), result.getMessage()));
+            } catch (RuntimeException e) {
+                failedOperations.incrementAndGet();
+                log.error("Отложенный лайк фильму id = {} от пользователя id = {} отброшен: {}",
+                        operation.getFilmId(), operation.getUserId(), e.getMessage());
+            }
+        }
+        return results;
+    }
+
+    private record LikeKey(Long filmId, Long userId) {
+    }
+}
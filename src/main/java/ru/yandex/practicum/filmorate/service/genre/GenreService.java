@@ -19,4 +19,8 @@ public class GenreService {
     public Genre findById(int id) {
         return storage.findById(id);
     }
+
+    public String getETag() {
+        return storage.getETag();
+    }
 }
\ No newline at end of file
@@ -19,4 +19,8 @@ public class MpaService {
     public Mpa findById(int id) {
         return storage.findById(id);
     }
+
+    public String getETag() {
+        return storage.getETag();
+    }
 }
\ No newline at end of file
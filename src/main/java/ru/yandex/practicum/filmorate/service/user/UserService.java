@@ -1,12 +1,21 @@
 package ru.yandex.practicum.filmorate.service.user;
 
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendshipOperation;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
 
 public interface UserService {
     Collection<User> getAll();
 
+    Collection<User> getPage(long after, int limit);
+
+    void streamAll(Consumer<User> consumer);
+
     void create(User user);
 
     void update(User newUser);
@@ -17,9 +26,17 @@ public interface UserService {
 
     void addFriend(Long id, Long friendId);
 
+    User addFriendAndGet(Long id, Long friendId);
+
     void deleteFromFriends(Long id, Long friendId);
 
+    List<BatchItemResult> applyFriendships(List<FriendshipOperation> operations);
+
     Collection<User> getAllFriends(Long id);
 
     Collection<User> getCommonFriends(Long id, Long friendId);
+
+    Collection<Film> getRecommendations(Long id, int count);
+
+    String getETag(long id);
 }
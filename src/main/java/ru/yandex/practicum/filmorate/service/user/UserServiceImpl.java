@@ -3,22 +3,40 @@ package ru.yandex.practicum.filmorate.service.user;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendshipOperation;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
 @AllArgsConstructor
 public class UserServiceImpl implements UserService {
     private UserStorage userStorage;
+    private FilmStorage filmStorage;
 
     @Override
     public Collection<User> getAll() {
         return userStorage.findAll();
     }
 
+    @Override
+    public Collection<User> getPage(long after, int limit) {
+        return userStorage.findPage(after, limit);
+    }
+
+    @Override
+    public void streamAll(Consumer<User> consumer) {
+        userStorage.streamAll(consumer);
+    }
+
     @Override
     public void create(User user) {
         userStorage.create(user);
@@ -35,6 +53,11 @@ public class UserServiceImpl implements UserService {
         return userStorage.findById(id);
     }
 
+    @Override
+    public String getETag(long id) {
+        return userStorage.getETag(id);
+    }
+
     @Override
     public void delete(long id) {
         userStorage.delete(id);
@@ -46,6 +69,13 @@ public class UserServiceImpl implements UserService {
         log.info("Добавлен новый друг с id={}", friendId);
     }
 
+    // Чтение идет после записи в потоке запроса: запрос занимает одно соединение с БД.
+    @Override
+    public User addFriendAndGet(Long id, Long friendId) {
+        addFriend(id, friendId);
+        return get(friendId);
+    }
+
     @Override
     public void deleteFromFriends(Long id, Long friendId) {
         userStorage.deleteFromFriends(id, friendId);
@@ -53,6 +83,11 @@ public class UserServiceImpl implements UserService {
 
     }
 
+    @Override
+    public List<BatchItemResult> applyFriendships(List<FriendshipOperation> operations) {
+        return userStorage.applyFriendships(operations);
+    }
+
     @Override
     public Collection<User> getAllFriends(Long id) {
         return userStorage.findAllFriends(id);
@@ -62,4 +97,12 @@ public class UserServiceImpl implements UserService {
     public Collection<User> getCommonFriends(Long id, Long friendId) {
         return userStorage.findCommonFriends(id, friendId);
     }
-}
\ No newline at end of file
+
+    @Override
+    public Collection<Film> getRecommendations(Long id, int count) {
+        if (!userStorage.isUserExists(id)) {
+            throw new NotFoundException("Пользователь с id = " + id + " не найден");
+        }
+        return filmStorage.getRecommendations(id, count);
+    }
+}
@@ -1,21 +1,51 @@
 package ru.yandex.practicum.filmorate.storage;
 
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import ru.yandex.practicum.filmorate.exceptions.InternalServerException;
+import ru.yandex.practicum.filmorate.storage.mapper.IndexedRowMapper;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.sql.PreparedStatement;
 import java.sql.Statement;
 import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
 
+@Slf4j
 @RequiredArgsConstructor
 public class BaseDbStorage<T> {
 
@@ -23,32 +53,135 @@ public class BaseDbStorage<T> {
     protected final JdbcTemplate jdbc;
     protected final RowMapper<T> mapper;
 
+    private static final String QUERY_TIMER = "filmorate.db.query";
+    private static final String QUERY_ROWS = "filmorate.db.rows";
+    private static final String UNNAMED_QUERY = "UNNAMED";
+
+    @Value("${filmorate.batch.chunk-size:500}")
+    protected int batchChunkSize = 500;
+
+    // Имена запросов для метрик — имена строковых констант, в которых лежит текст запроса.
+    private final Map<String, String> queryNames = findQueryNames(getClass());
+    private final Map<String, QueryMeters> queryMeters = new ConcurrentHashMap<>();
+    private MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+    @Autowired(required = false)
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        queryMeters.clear();
+    }
+
     protected Optional<T> findOne(String query, Object... params) {
-        try {
-            T result = jdbc.queryForObject(query, mapper, params);
-            return Optional.ofNullable(result);
-        } catch (EmptyResultDataAccessException ignored) {
-            return Optional.empty();
-        }
+        return measure(query, () -> {
+            try {
+                T result = jdbc.queryForObject(query, mapper, params);
+                return Optional.ofNullable(result);
+            } catch (EmptyResultDataAccessException ignored) {
+                return Optional.<T>empty();
+            }
+        }, result -> result.isPresent() ? 1 : 0);
     }
 
     protected List<T> findMany(String query, Object... params) {
-        return jdbc.query(query, mapper, params);
+        return measure(query, () -> {
+            List<T> results = new ArrayList<>();
+            jdbc.query(query, rowsOf(results::add), params);
+            return results;
+        }, List::size);
     }
 
     protected boolean delete(String query, Object... params) {
-        int rowsDeleted = jdbc.update(query, params);
+        int rowsDeleted = execute(query, params);
         return rowsDeleted > 0;
     }
 
     protected void update(String query, Object... params) {
-        int rowsUpdated = jdbc.update(query, params);
+        int rowsUpdated = execute(query, params);
         if (rowsUpdated == 0) {
             throw new InternalServerException("Не удалось обновить данные");
         }
     }
 
+    protected int execute(String query, Object... params) {
+        return measure(query, () -> jdbc.update(query, params), Integer::intValue);
+    }
+
+    protected int forEachRow(String query, RowCallbackHandler handler, Object... params) {
+        return measure(query, () -> {
+            int[] rows = {0};
+            jdbc.query(query, rs -> {
+                handler.processRow(rs);
+                rows[0]++;
+            }, params);
+            return rows[0];
+        }, Integer::intValue);
+    }
+
+    // Передает в consumer все строки результата, прочитанные mapper. IndexedRowMapper
+    // разрешает индексы колонок один раз на ResultSet, а не в каждой строке.
+    protected int forEachMapped(String query, Consumer<? super T> consumer, Object... params) {
+        return measure(query, () -> {
+            int[] rows = {0};
+            jdbc.query(query, rowsOf(row -> {
+                consumer.accept(row);
+                rows[0]++;
+            }), params);
+            return rows[0];
+        }, Integer::intValue);
+    }
+
+    private ResultSetExtractor<Void> rowsOf(Consumer<? super T> consumer) {
+        return rs -> {
+            RowMapper<T> rowMapper = null;
+            int rowNum = 0;
+            while (rs.next()) {
+                if (rowMapper == null) {
+                    rowMapper = mapper instanceof IndexedRowMapper<T> indexed ? indexed.bind(rs) : mapper;
+                }
+                consumer.accept(rowMapper.mapRow(rs, rowNum++));
+            }
+            return null;
+        };
+    }
+
+    // Время выполнения и число строк по запросу; rowsOf считает строки по результату вызова.
+    protected <R> R measure(String query, Supplier<R> call, ToIntFunction<? super R> rowsOf) {
+        QueryMeters meters = queryMeters.computeIfAbsent(query, this::createMeters);
+        long start = System.nanoTime();
+        R result;
+        try {
+            result = call.get();
+        } finally {
+            meters.timer().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        meters.rows().record(rowsOf.applyAsInt(result));
+        return result;
+    }
+
+    // Изменения индексов в памяти: внутри транзакции выполняются только после ее фиксации,
+    // иначе откат оставил бы в памяти данные, которых нет в БД.
+    public static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    protected static int sum(int[][] counts) {
+        return Arrays.stream(counts).flatMapToInt(Arrays::stream).sum();
+    }
+
     protected long insertGetKey(String query, Object... params) {
+        return measure(query, () -> doInsertGetKey(query, params), id -> 1);
+    }
+
+    private long doInsertGetKey(String query, Object... params) {
         KeyHolder keyHolder = new GeneratedKeyHolder();
         jdbc.update(connection -> {
             PreparedStatement ps = connection
@@ -73,9 +206,123 @@ public class BaseDbStorage<T> {
     }
 
     protected void insert(String query, Object... params) {
-        int rowsInserted = jdbc.update(query, params);
+        int rowsInserted = execute(query, params);
         if (rowsInserted == 0) {
             throw new InternalServerException("Не удалось сохранить данные");
         }
     }
-}
\ No newline at end of file
+
+    // Выполняет операции в исходном порядке: подряд идущие операции с одинаковым запросом
+    // уходят одним jdbc batch по batchChunkSize штук. Возвращает число измененных строк по каждой операции.
+    protected <O> int[] batchUpdateInOrder(List<O> operations,
+                                           Function<O, String> queryOf,
+                                           Function<O, Object[]> paramsOf) {
+        int[] counts = new int[operations.size()];
+        int start = 0;
+        while (start < operations.size()) {
+            String query = queryOf.apply(operations.get(start));
+            int end = start + 1;
+            while (end < operations.size() && query.equals(queryOf.apply(operations.get(end)))) {
+                end++;
+            }
+            List<Object[]> batchParams = operations.subList(start, end).stream()
+                    .map(paramsOf)
+                    .toList();
+            int[] batchCounts = batchUpdateOrOneByOne(query, batchParams);
+            System.arraycopy(batchCounts, 0, counts, start, batchCounts.length);
+            start = end;
+        }
+        return counts;
+    }
+
+    // Проверка "если строки еще нет" в INSERT не атомарна: параллельный запрос может вставить
+    // ту же строку раньше. Тогда пакет откатывается до точки сохранения и повторяется по одной
+    // операции, а операция с конфликтом считается не изменившей строк.
+    private int[] batchUpdateOrOneByOne(String query, List<Object[]> batchParams) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return batchUpdate(query, batchParams);
+        }
+        TransactionStatus transaction = TransactionAspectSupport.currentTransactionStatus();
+        Object savepoint = transaction.createSavepoint();
+        try {
+            int[] counts = batchUpdate(query, batchParams);
+            transaction.releaseSavepoint(savepoint);
+            return counts;
+        } catch (DuplicateKeyException e) {
+            transaction.rollbackToSavepoint(savepoint);
+            transaction.releaseSavepoint(savepoint);
+            log.debug("Конфликт вставки в пакете, операции выполняются по одной: {}", e.getMessage());
+        }
+        int[] counts = new int[batchParams.size()];
+        for (int idx = 0; idx < batchParams.size(); idx++) {
+            Object itemSavepoint = transaction.createSavepoint();
+            try {
+                counts[idx] = execute(query, batchParams.get(idx));
+            } catch (DuplicateKeyException e) {
+                transaction.rollbackToSavepoint(itemSavepoint);
+            }
+            transaction.releaseSavepoint(itemSavepoint);
+        }
+        return counts;
+    }
+
+    private int[] batchUpdate(String query, List<Object[]> batchParams) {
+        int[][] chunks = measure(query, () -> jdbc.batchUpdate(query, batchParams, batchChunkSize, (ps, params) -> {
+            for (int idx = 0; idx < params.length; idx++) {
+                ps.setObject(idx + 1, params[idx]);
+            }
+        }), BaseDbStorage::sum);
+        int[] counts = new int[batchParams.size()];
+        int position = 0;
+        for (int[] chunk : chunks) {
+            System.arraycopy(chunk, 0, counts, position, chunk.length);
+            position += chunk.length;
+        }
+        return counts;
+    }
+
+    protected Set<Long> findExistingIds(String query, Collection<Long> ids) {
+        Set<Long> existing = new HashSet<>();
+        List<Long> distinctIds = List.copyOf(new HashSet<>(ids));
+        for (int from = 0; from < distinctIds.size(); from += batchChunkSize) {
+            Long[] chunk = distinctIds.subList(from, Math.min(distinctIds.size(), from + batchChunkSize))
+                    .toArray(Long[]::new);
+            existing.addAll(measure(query, () -> jdbc.queryForList(query, Long.class, (Object) chunk), List::size));
+        }
+        return existing;
+    }
+
+    private QueryMeters createMeters(String query) {
+        String name = queryNames.getOrDefault(query, UNNAMED_QUERY);
+        return new QueryMeters(
+                Timer.builder(QUERY_TIMER)
+                        .description("Время выполнения запроса к БД")
+                        .tag("query", name)
+                        .register(meterRegistry),
+                DistributionSummary.builder(QUERY_ROWS)
+                        .description("Число строк, прочитанных или измененных запросом")
+                        .tag("query", name)
+                        .register(meterRegistry));
+    }
+
+    private static Map<String, String> findQueryNames(Class<?> type) {
+        Map<String, String> names = new HashMap<>();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) && Modifier.isFinal(modifiers) && field.getType() == String.class) {
+                    try {
+                        field.setAccessible(true);
+                        names.putIfAbsent((String) field.get(null), field.getName());
+                    } catch (IllegalAccessException ignored) {
+                        // Константа без доступа просто останется без имени в метриках.
+                    }
+                }
+            }
+        }
+        return Map.copyOf(names);
+    }
+
+    private record QueryMeters(Timer timer, DistributionSummary rows) {
+    }
+}
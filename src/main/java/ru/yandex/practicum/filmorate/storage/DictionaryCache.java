@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+// Кэш небольших справочников (жанры, рейтинги MPA): записи лежат в массиве по id
+// и читаются из БД только при первом обращении или после invalidate().
+public class DictionaryCache<T> {
+
+    private final Supplier<List<T>> loader;
+    private final ToIntFunction<T> idExtractor;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile Snapshot<T> snapshot;
+
+    public DictionaryCache(Supplier<List<T>> loader, ToIntFunction<T> idExtractor) {
+        this.loader = loader;
+        this.idExtractor = idExtractor;
+    }
+
+    public List<T> findAll() {
+        return snapshot().values();
+    }
+
+    public Optional<T> findById(int id) {
+        Object[] byId = snapshot().byId();
+        if (id < 0 || id >= byId.length) {
+            return Optional.empty();
+        }
+        @SuppressWarnings("unchecked")
+        T value = (T) byId[id];
+        return Optional.ofNullable(value);
+    }
+
+    public boolean contains(int id) {
+        return findById(id).isPresent();
+    }
+
+    public String getETag() {
+        return snapshot().etag();
+    }
+
+    public void invalidate() {
+        snapshot = null;
+    }
+
+    private Snapshot<T> snapshot() {
+        Snapshot<T> current = snapshot;
+        if (current == null) {
+            current = load();
+        }
+        return current;
+    }
+
+    // ReentrantLock вместо synchronized: запрос в БД под монитором закрепил бы виртуальный поток.
+    private Snapshot<T> load() {
+        lock.lock();
+        try {
+            if (snapshot != null) {
+                return snapshot;
+            }
+            List<T> values = loader.get();
+            int maxId = values.stream().mapToInt(idExtractor).max().orElse(-1);
+            Object[] byId = new Object[maxId + 1];
+            for (T value : values) {
+                byId[idExtractor.applyAsInt(value)] = value;
+            }
+            String etag = Integer.toHexString(values.hashCode());
+            snapshot = new Snapshot<>(Collections.unmodifiableList(values), byId, etag);
+            return snapshot;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private record Snapshot<T>(List<T> values, Object[] byId, String etag) {
+    }
+}
@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Версии записей таблицы в памяти для ETag: проверка If-None-Match не требует запроса в БД.
+// Каждое изменение берет следующее значение общего счетчика, он же служит версией всей коллекции.
+// Версии не сохраняются, поэтому в ETag входит случайная эпоха экземпляра: после перезапуска
+// или на другом экземпляре прежние ETag не совпадут. Запись без изменений имеет версию 0.
+public class EntityVersions {
+
+    private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    private final AtomicLong sequence = new AtomicLong();
+    private final ConcurrentMap<Long, Long> versions = new ConcurrentHashMap<>();
+
+    // Внутри транзакции версия меняется после фиксации: иначе параллельный запрос мог бы
+    // прочитать старые данные под новым ETag, и клиент хранил бы их до следующего изменения.
+    public void bump(long id) {
+        BaseDbStorage.afterCommit(() -> bumpNow(id));
+    }
+
+    public String getETag(long id) {
+        return epoch + "-" + versions.getOrDefault(id, 0L);
+    }
+
+    public String getCollectionETag() {
+        return epoch + "-" + sequence.get();
+    }
+
+    private void bumpNow(long id) {
+        versions.merge(id, sequence.incrementAndGet(), Math::max);
+    }
+}
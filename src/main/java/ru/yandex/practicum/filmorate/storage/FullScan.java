@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Помечает SQL-константу, которая читает таблицу целиком намеренно (выгрузка, загрузка индексов в память).
+// QueryPlanAdvisor не считает полный просмотр таких запросов ошибкой.
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface FullScan {
+    String value();
+}
@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.BitSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Битовая карта id, существующих в таблице. Отрицательный ответ точный, если все изменения
+// таблицы идут через хранилище, поэтому проверка несуществующего id не требует запроса в БД.
+// Id больше MAX_TRACKED_ID не отслеживаются и считаются возможно существующими.
+public class KnownIds {
+
+    private static final long MAX_TRACKED_ID = 1L << 27;
+
+    private final BitSet ids = new BitSet();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public boolean mightContain(Long id) {
+        if (id == null || id < 0) {
+            return false;
+        }
+        if (id >= MAX_TRACKED_ID) {
+            return true;
+        }
+        lock.readLock().lock();
+        try {
+            return ids.get(id.intValue());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void add(long id) {
+        if (id < 0 || id >= MAX_TRACKED_ID) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            ids.set((int) id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        if (id < 0 || id >= MAX_TRACKED_ID) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            ids.clear((int) id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            ids.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
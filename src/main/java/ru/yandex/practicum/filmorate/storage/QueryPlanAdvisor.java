@@ -0,0 +1,150 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Выполняет EXPLAIN для каждой SQL-константы классов хранилища и сообщает о полных просмотрах таблиц.
+// Запросы, которым полный просмотр нужен, помечаются @FullScan. Параметры связываются со значением NULL:
+// план H2 от значений параметров не зависит.
+@Slf4j
+@Component
+public class QueryPlanAdvisor {
+
+    private static final Pattern SQL_START = Pattern.compile("^\\s*(SELECT|INSERT|UPDATE|DELETE|MERGE|WITH)\\b",
+            Pattern.CASE_INSENSITIVE);
+    // "/* PUBLIC.FILMS.tableScan */" — просмотр таблицы, "/* PUBLIC.PRIMARY_KEY_3 */" — индекса целиком.
+    // У поиска по индексу после имени идет условие: "/* PUBLIC.PRIMARY_KEY_3: FILMS_ID = ?1 */".
+    private static final Pattern FULL_SCAN = Pattern.compile("/\\*\\s+(\\S+?)(?:\\.tableScan)?\\s*\\*/");
+
+    private final JdbcTemplate jdbc;
+    private final ApplicationContext context;
+    private final boolean enabled;
+
+    public QueryPlanAdvisor(JdbcTemplate jdbc, ApplicationContext context,
+                            @Value("${filmorate.query-plan-advisor.enabled:false}") boolean enabled) {
+        this.jdbc = jdbc;
+        this.context = context;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reportOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        List<QueryPlan> plans = explainAll();
+        List<QueryPlan> scans = plans.stream().filter(QueryPlan::isUnexpectedScan).toList();
+        for (QueryPlan plan : scans) {
+            log.warn("Запрос {}.{} читает целиком {}:\n{}",
+                    plan.owner().getSimpleName(), plan.name(), plan.scannedTables(), plan.plan());
+        }
+        log.info("Проверено планов запросов: {}, полных просмотров без @FullScan: {}", plans.size(), scans.size());
+    }
+
+    public List<QueryPlan> findUnexpectedScans() {
+        return explainAll().stream().filter(QueryPlan::isUnexpectedScan).toList();
+    }
+
+    public List<QueryPlan> explainAll() {
+        List<QueryPlan> plans = new ArrayList<>();
+        for (Class<?> type : storageClasses()) {
+            for (Field field : type.getDeclaredFields()) {
+                String sql = sqlConstant(field);
+                if (sql != null) {
+                    String plan = explain(sql);
+                    plans.add(new QueryPlan(type, field.getName(), plan, scannedTables(plan),
+                            field.isAnnotationPresent(FullScan.class)));
+                }
+            }
+        }
+        return plans;
+    }
+
+    private Set<Class<?>> storageClasses() {
+        String storagePackage = getClass().getPackageName();
+        Set<Class<?>> classes = new TreeSet<>(Comparator.comparing(Class::getName));
+        // Только тип бина: getBean создал бы ленивые и prototype-бины и упал бы на абстрактных определениях.
+        for (String name : context.getBeanDefinitionNames()) {
+            Class<?> beanType = context.getType(name, false);
+            if (beanType == null) {
+                continue;
+            }
+            for (Class<?> type = ClassUtils.getUserClass(beanType); type != null && type != Object.class;
+                 type = type.getSuperclass()) {
+                if (type.getPackageName().startsWith(storagePackage)) {
+                    classes.add(type);
+                }
+            }
+        }
+        return classes;
+    }
+
+    private static String sqlConstant(Field field) {
+        int modifiers = field.getModifiers();
+        if (!Modifier.isStatic(modifiers) || !Modifier.isFinal(modifiers) || field.getType() != String.class) {
+            return null;
+        }
+        try {
+            field.setAccessible(true);
+            String value = (String) field.get(null);
+            return value != null && SQL_START.matcher(value).find() ? value : null;
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private String explain(String sql) {
+        return jdbc.execute((ConnectionCallback<String>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                int parameters = statement.getParameterMetaData().getParameterCount();
+                for (int i = 1; i <= parameters; i++) {
+                    statement.setNull(i, Types.NULL);
+                }
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        plan.append(rs.getString(1));
+                    }
+                }
+                return plan.toString();
+            }
+        });
+    }
+
+    private static List<String> scannedTables(String plan) {
+        List<String> tables = new ArrayList<>();
+        Matcher matcher = FULL_SCAN.matcher(plan);
+        while (matcher.find()) {
+            tables.add(matcher.group(1));
+        }
+        return tables;
+    }
+
+    public record QueryPlan(Class<?> owner, String name, String plan, List<String> scannedTables,
+                            boolean fullScanExpected) {
+
+        public boolean isUnexpectedScan() {
+            return !fullScanExpected && !scannedTables.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Arrays;
+
+// Операции над отсортированными массивами id без повторов. Массивы не изменяются на месте:
+// графы в памяти публикуют их в ConcurrentHashMap и заменяют целиком при каждом изменении.
+public final class SortedLongArrays {
+
+    private SortedLongArrays() {
+    }
+
+    public static long[] insert(long[] values, long value) {
+        if (values == null) {
+            return new long[]{value};
+        }
+        int pos = Arrays.binarySearch(values, value);
+        if (pos >= 0) {
+            return values;
+        }
+        pos = -pos - 1;
+        long[] result = new long[values.length + 1];
+        System.arraycopy(values, 0, result, 0, pos);
+        result[pos] = value;
+        System.arraycopy(values, pos, result, pos + 1, values.length - pos);
+        return result;
+    }
+
+    // Возвращает null вместо пустого массива, чтобы compute удалил ключ.
+    public static long[] delete(long[] values, long value) {
+        int pos = Arrays.binarySearch(values, value);
+        if (pos < 0) {
+            return values;
+        }
+        if (values.length == 1) {
+            return null;
+        }
+        long[] result = new long[values.length - 1];
+        System.arraycopy(values, 0, result, 0, pos);
+        System.arraycopy(values, pos + 1, result, pos, values.length - pos - 1);
+        return result;
+    }
+}
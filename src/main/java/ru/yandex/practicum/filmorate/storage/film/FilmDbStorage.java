@@ -1,19 +1,32 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
 import ru.yandex.practicum.filmorate.model.*;
 import ru.yandex.practicum.filmorate.storage.BaseDbStorage;
+import ru.yandex.practicum.filmorate.storage.EntityVersions;
+import ru.yandex.practicum.filmorate.storage.KnownIds;
+import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.mapper.FilmResultSetExtractor;
 import ru.yandex.practicum.filmorate.storage.mpa.MpaStorage;
+import ru.yandex.practicum.filmorate.storage.FullScan;
 
 import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static java.util.function.UnaryOperator.identity;
@@ -24,10 +37,40 @@ import static java.util.function.UnaryOperator.identity;
 @Primary
 public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
 
+    @FullScan("Выгрузка всех фильмов")
     private static final String FILMS_FIND_ALL_QUERY = """
-            SELECT *
+            SELECT f.FILMS_ID, f.NAME, f.DESCRIPTION, f.RELEASE_DATE, f.DURATION, f.RATING_ID, r.MPA_NAME,
+                g.GENRE_ID, g.GENRE_NAME
             FROM FILMS AS f
-            LEFT JOIN MPA AS r ON  f.RATING_ID = r.RATING_ID;
+            LEFT JOIN MPA AS r ON  f.RATING_ID = r.RATING_ID
+            LEFT JOIN FILMS_GENRES AS fg ON fg.FILMS_ID = f.FILMS_ID
+            LEFT JOIN GENRES AS g ON g.GENRE_ID = fg.GENRE_ID
+            ORDER BY f.FILMS_ID, g.GENRE_ID;
+            """;
+    private static final String FILMS_FIND_PAGE_QUERY = """
+            SELECT f.FILMS_ID, f.NAME, f.DESCRIPTION, f.RELEASE_DATE, f.DURATION, f.RATING_ID, r.MPA_NAME,
+                g.GENRE_ID, g.GENRE_NAME
+            FROM (
+                SELECT FILMS_ID, NAME, DESCRIPTION, RELEASE_DATE, DURATION, RATING_ID
+                FROM FILMS
+                WHERE FILMS_ID > ?
+                ORDER BY FILMS_ID
+                LIMIT ?
+                ) AS f
+            LEFT JOIN MPA AS r ON  f.RATING_ID = r.RATING_ID
+            LEFT JOIN FILMS_GENRES AS fg ON fg.FILMS_ID = f.FILMS_ID
+            LEFT JOIN GENRES AS g ON g.GENRE_ID = fg.GENRE_ID
+            ORDER BY f.FILMS_ID, g.GENRE_ID;
+            """;
+    private static final String FILMS_FIND_BY_IDS_QUERY = """
+            SELECT f.FILMS_ID, f.NAME, f.DESCRIPTION, f.RELEASE_DATE, f.DURATION, f.RATING_ID, r.MPA_NAME,
+                g.GENRE_ID, g.GENRE_NAME
+            FROM FILMS AS f
+            LEFT JOIN MPA AS r ON  f.RATING_ID = r.RATING_ID
+            LEFT JOIN FILMS_GENRES AS fg ON fg.FILMS_ID = f.FILMS_ID
+            LEFT JOIN GENRES AS g ON g.GENRE_ID = fg.GENRE_ID
+            WHERE f.FILMS_ID = ANY(?)
+            ORDER BY f.FILMS_ID, g.GENRE_ID;
             """;
     private static final String FILMS_INSERT_QUERY = """
             INSERT INTO FILMS (NAME, DESCRIPTION, RELEASE_DATE, DURATION, RATING_ID)
@@ -42,37 +85,63 @@ public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
                 RATING_ID = ?
             WHERE FILMS_ID = ?;
             """;
-    private static final String FILMS_FIND_BY_ID_QUERY = """
-            SELECT *
-            FROM FILMS AS f
-            LEFT JOIN MPA AS r ON  f.RATING_ID = r.RATING_ID
-            WHERE f.FILMS_ID = ?;
+    private static final String FILMS_EXISTS_QUERY = """
+            SELECT EXISTS (
+                SELECT 1
+                FROM FILMS
+                WHERE FILMS_ID = ?
+                );
+            """;
+    private static final String FILMS_FIND_EXISTING_IDS_QUERY = """
+            SELECT FILMS_ID
+            FROM FILMS
+            WHERE FILMS_ID = ANY(?);
+            """;
+    private static final String USERS_FIND_EXISTING_IDS_QUERY = """
+            SELECT USER_ID
+            FROM USERS
+            WHERE USER_ID = ANY(?);
+            """;
+    @FullScan("Загрузка известных id при старте")
+    private static final String FILMS_FIND_ALL_IDS_QUERY = """
+            SELECT FILMS_ID
+            FROM FILMS;
             """;
     private static final String FILMS_ADD_LIKE_QUERY = """
-            INSERT INTO LIKES (FILMS_ID, USER_ID)
-                        VALUES (?, ?);
+            INSERT INTO LIKES (FILMS_ID, USER_ID, CREATED_AT)
+                        VALUES (?, ?, ?);
+            """;
+    private static final String FILMS_ADD_LIKE_IF_ABSENT_QUERY = """
+            INSERT INTO LIKES (FILMS_ID, USER_ID, CREATED_AT)
+            SELECT ?, ?, ?
+            WHERE NOT EXISTS (
+                SELECT 1
+                FROM LIKES
+                WHERE FILMS_ID = ?
+                    AND USER_ID = ?
+                );
+            """;
+    private static final String FILMS_FIND_LIKE_CREATED_AT_QUERY = """
+            SELECT CREATED_AT
+            FROM LIKES
+            WHERE USER_ID = ?
+                AND FILMS_ID = ?;
+            """;
+    private static final String FILMS_FIND_RECENT_LIKES_QUERY = """
+            SELECT USER_ID, FILMS_ID, CREATED_AT
+            FROM LIKES
+            WHERE USER_ID = ANY(?)
+                AND CREATED_AT >= ?;
             """;
     private static final String FILMS_DELETE_LIKE_QUERY = """
             DELETE FROM LIKES
             WHERE FILMS_ID = ?
                 AND USER_ID = ?;
             """;
-    private static final String FILMS_GET_POPULAR_QUERY = """
-            SELECT
-                f.FILMS_ID AS FILMS_ID,
-                f.NAME AS NAME,
-                f.DESCRIPTION AS DESCRIPTION,
-                f.RELEASE_DATE AS RELEASE_DATE,
-                f.DURATION AS DURATION,
-                r.RATING_ID AS RATING_ID,
-                r.MPA_NAME AS MPA_NAME,
-            COUNT(l.FILMS_ID) AS count
-            FROM FILMS AS f
-            LEFT JOIN LIKES AS l ON l.FILMS_ID = f.FILMS_ID
-            LEFT JOIN MPA AS r ON f.RATING_ID = r.RATING_ID
-            GROUP BY f.FILMS_ID
-            ORDER BY count DESC
-            LIMIT ?;
+    private static final String FILMS_CHANGE_LIKES_COUNT_QUERY = """
+            UPDATE FILMS
+            SET LIKES_COUNT = LIKES_COUNT + ?
+            WHERE FILMS_ID = ?;
             """;
     private static final String FILMS_DELETE_FILMS_GENRE_QUERY = """
             DELETE FROM FILMS_GENRES
@@ -88,38 +157,75 @@ public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
             WHERE FILMS_ID = ?;
             """;
 
-    private static final String GENRES_FIND_BY_IDS_QUERY = """
-            SELECT GENRE_ID FROM GENRES WHERE GENRE_ID IN (%S)
-            """;
+    private static final int FIND_BY_IDS_CHUNK_SIZE = 500;
 
     private final MpaStorage mpaStorage;
-    private final FilmGenreStorage filmGenreStorage;
+    private final GenreStorage genreStorage;
+    private final FilmResultSetExtractor filmExtractor;
+    private final PopularFilmsIndex popularFilmsIndex;
+    private final FilmSearchIndex filmSearchIndex;
+    private final LikesGraph likesGraph;
+    private final TrendingFilmsIndex trendingFilmsIndex;
+    private final KnownIds knownFilmIds = new KnownIds();
+    private final EntityVersions filmVersions = new EntityVersions();
 
     public FilmDbStorage(JdbcTemplate jdbc, RowMapper<Film> mapper,
-                         MpaStorage mpaStorage, FilmGenreStorage filmGenreStorage) {
+                         MpaStorage mpaStorage, GenreStorage genreStorage,
+                         FilmResultSetExtractor filmExtractor, PopularFilmsIndex popularFilmsIndex,
+                         FilmSearchIndex filmSearchIndex, LikesGraph likesGraph,
+                         TrendingFilmsIndex trendingFilmsIndex) {
         super(jdbc, mapper);
         this.mpaStorage = mpaStorage;
-        this.filmGenreStorage = filmGenreStorage;
+        this.genreStorage = genreStorage;
+        this.filmExtractor = filmExtractor;
+        this.popularFilmsIndex = popularFilmsIndex;
+        this.filmSearchIndex = filmSearchIndex;
+        this.likesGraph = likesGraph;
+        this.trendingFilmsIndex = trendingFilmsIndex;
     }
 
+    @PostConstruct
+    public void loadKnownIds() {
+        knownFilmIds.clear();
+        forEachRow(FILMS_FIND_ALL_IDS_QUERY, rs -> {
+            knownFilmIds.add(rs.getLong("FILMS_ID"));
+        });
+    }
 
     @Override
     public Collection<Film> findAll() {
         log.info("Получение списка фильмов");
-        Collection<Film> films = findMany(FILMS_FIND_ALL_QUERY);
-        setFilmsGenres(films);
-        return films;
+        return measure(FILMS_FIND_ALL_QUERY, () -> jdbc.query(FILMS_FIND_ALL_QUERY, filmExtractor), List::size);
+    }
+
+    @Override
+    public Collection<Film> findPage(long after, int limit) {
+        log.info("Получение {} фильмов с id больше {}", limit, after);
+        return measure(FILMS_FIND_PAGE_QUERY,
+                () -> jdbc.query(FILMS_FIND_PAGE_QUERY, filmExtractor, after, limit), List::size);
+    }
+
+    @Override
+    public void streamAll(Consumer<Film> consumer) {
+        log.info("Потоковая выгрузка списка фильмов");
+        measure(FILMS_FIND_ALL_QUERY, () -> jdbc.query(FILMS_FIND_ALL_QUERY, (ResultSetExtractor<Integer>) rs -> {
+            int[] films = {0};
+            filmExtractor.extract(rs, film -> {
+                consumer.accept(film);
+                films[0]++;
+            });
+            return films[0];
+        }), Integer::intValue);
     }
 
     @Override
     public Film findById(Long id) {
         log.info("Получение фильма с id = {}", id);
-        Collection<Film> films = findMany(FILMS_FIND_BY_ID_QUERY, id);
+        List<Film> films = findByIds(List.of(id));
         if (films.isEmpty()) {
             throw new NotFoundException("Фильм с id = " + id + " не найден!");
         }
-        setFilmsGenres(films);
-        return films.iterator().next();
+        return films.getFirst();
     }
 
     @Override
@@ -136,95 +242,282 @@ public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
         film.setId(id);
         //film.getGenres().forEach(genre -> insert(FILMS_INSERT_FILMS_GENRE_QUERY, id, genre.getId()));
         updateGenres(film.getGenres(), id);
+        knownFilmIds.add(id);
+        popularFilmsIndex.put(id, 0);
+        filmSearchIndex.put(id, film.getName(), film.getDescription());
+        filmVersions.bump(id);
         log.info("Фильм {} добавлен в список с id = {}", film.getName(), film.getId());
         return film;
     }
 
     @Override
+    @Transactional
     public Film update(Film film) {
         if (film.getId() == null) {
             throw new NotFoundException("Id фильма должен быть указан");
         }
-        if (isFilmExists(film.getId())) {
-            update(
-                    FILMS_UPDATE_QUERY,
-                    film.getName(),
-                    film.getDescription(),
-                    Date.valueOf(film.getReleaseDate()),
-                    film.getDuration(),
-                    film.getMpa().getId(),
-                    film.getId()
-            );
-            delete(
-                    FILMS_DELETE_FILMS_GENRE_QUERY,
-                    film.getId()
-            );
-            updateGenres(film.getGenres(), film.getId());
-            delete(
-                    film.getId()
-            );
-            log.info("Фильм с id = {} обновлен", film.getId());
-            return film;
+        if (!knownFilmIds.mightContain(film.getId())) {
+            throw new NotFoundException("Фильм с id = " + film.getId() + " не найден");
+        }
+        int rowsUpdated = execute(
+                FILMS_UPDATE_QUERY,
+                film.getName(),
+                film.getDescription(),
+                Date.valueOf(film.getReleaseDate()),
+                film.getDuration(),
+                film.getMpa().getId(),
+                film.getId()
+        );
+        if (rowsUpdated == 0) {
+            throw new NotFoundException("Фильм с id = " + film.getId() + " не найден");
         }
-        throw new NotFoundException("Фильм с id = " + film.getId() + " не найден");
+        delete(
+                FILMS_DELETE_FILMS_GENRE_QUERY,
+                film.getId()
+        );
+        updateGenres(film.getGenres(), film.getId());
+        afterCommit(() -> filmSearchIndex.put(film.getId(), film.getName(), film.getDescription()));
+        filmVersions.bump(film.getId());
+        log.info("Фильм с id = {} обновлен", film.getId());
+        return film;
     }
 
     @Override
     public void delete(Long id) {
-        if (!isFilmExists(id))
+        if (!knownFilmIds.mightContain(id) || !delete(FILMS_DELETE, id))
             throw new NotFoundException("Фильм с id = " + id + " не найден");
-        delete(FILMS_DELETE, id);
+        knownFilmIds.remove(id);
+        popularFilmsIndex.remove(id);
+        trendingFilmsIndex.remove(id);
+        filmSearchIndex.remove(id);
+        filmVersions.bump(id);
         log.info("Фильм с id = {} удален", id);
     }
 
     @Override
+    @Transactional
     public void addLike(Long id, Long userId) {
-        if (!isFilmExists(id))
+        if (!knownFilmIds.mightContain(id))
             throw new NotFoundException("Фильм с id = " + id + " не найден");
-        Film film = findOne(
-                FILMS_FIND_BY_ID_QUERY,
-                id
-        ).orElse(null);
-        insert(
-                FILMS_ADD_LIKE_QUERY,
-                id,
-                userId
-        );
-        assert film != null;
+        Instant createdAt = trendingFilmsIndex.now();
+        try {
+            insert(
+                    FILMS_ADD_LIKE_QUERY,
+                    id,
+                    userId,
+                    Timestamp.from(createdAt)
+            );
+        } catch (DuplicateKeyException e) {
+            throw e;
+        } catch (DataIntegrityViolationException e) {
+            if (!isFilmExists(id))
+                throw new NotFoundException("Фильм с id = " + id + " не найден");
+            throw new NotFoundException("Пользователь с id = " + userId + " не найден");
+        }
+        update(FILMS_CHANGE_LIKES_COUNT_QUERY, 1, id);
+        afterCommit(() -> {
+            popularFilmsIndex.addLike(id);
+            trendingFilmsIndex.addLike(id, createdAt);
+            likesGraph.add(userId, id);
+        });
+        filmVersions.bump(id);
         log.info("Пользователь с id = {} поставил лайк фильму id = {}", userId, id);
     }
 
     @Override
+    @Transactional
     public void deleteLike(Long id, Long userId) {
-        if (!isFilmExists(id))
+        if (!knownFilmIds.mightContain(id))
             throw new NotFoundException("Фильм с id = " + id + " не найден");
-        Film film = findOne(
-                FILMS_FIND_BY_ID_QUERY,
-                id
-        ).orElse(null);
-        delete(
+        List<Timestamp> createdAt = measure(FILMS_FIND_LIKE_CREATED_AT_QUERY,
+                () -> jdbc.queryForList(FILMS_FIND_LIKE_CREATED_AT_QUERY, Timestamp.class, userId, id), List::size);
+        if (delete(
                 FILMS_DELETE_LIKE_QUERY,
                 id,
                 userId
-        );
-        assert film != null;
+        )) {
+            update(FILMS_CHANGE_LIKES_COUNT_QUERY, -1, id);
+            afterCommit(() -> {
+                popularFilmsIndex.removeLike(id);
+                createdAt.forEach(time -> trendingFilmsIndex.removeLike(id, time.toInstant()));
+                likesGraph.remove(userId, id);
+            });
+            filmVersions.bump(id);
+        } else if (!isFilmExists(id)) {
+            throw new NotFoundException("Фильм с id = " + id + " не найден");
+        }
         log.info("Пользователь с id = {} удалил лайк фильму id = {}", userId, id);
     }
 
+    @Override
+    @Transactional
+    public List<BatchItemResult> applyLikes(List<LikeOperation> operations) {
+        log.info("Пакетная обработка {} лайков", operations.size());
+        BatchItemResult[] results = new BatchItemResult[operations.size()];
+        Set<Long> existingFilmIds = findExistingIds(FILMS_FIND_EXISTING_IDS_QUERY, operations.stream()
+                .map(LikeOperation::getFilmId)
+                .filter(knownFilmIds::mightContain)
+                .toList());
+        Set<Long> existingUserIds = findExistingIds(USERS_FIND_EXISTING_IDS_QUERY, operations.stream()
+                .map(LikeOperation::getUserId)
+                .filter(Objects::nonNull)
+                .toList());
+
+        List<Integer> validIndexes = new ArrayList<>();
+        for (int idx = 0; idx < operations.size(); idx++) {
+            LikeOperation operation = operations.get(idx);
+            if (operation.getFilmId() == null || operation.getUserId() == null || operation.getAction() == null) {
+                results[idx] = new BatchItemResult(idx, BatchItemStatus.INVALID, "Не указан фильм, пользователь или действие");
+            } else if (!existingFilmIds.contains(operation.getFilmId())) {
+                results[idx] = new BatchItemResult(idx, BatchItemStatus.NOT_FOUND,
+                        "Фильм с id = " + operation.getFilmId() + " не найден");
+            } else if (!existingUserIds.contains(operation.getUserId())) {
+                results[idx] = new BatchItemResult(idx, BatchItemStatus.NOT_FOUND,
+                        "Пользователь с id = " + operation.getUserId() + " не найден");
+            } else {
+                validIndexes.add(idx);
+            }
+        }
+
+        List<LikeOperation> validOperations = validIndexes.stream()
+                .map(operations::get)
+                .toList();
+        Instant now = trendingFilmsIndex.now();
+        Map<LikeKey, Instant> createdAt = findRecentLikes(validOperations.stream()
+                .filter(operation -> operation.getAction() == BatchAction.REMOVE)
+                .map(LikeOperation::getUserId)
+                .toList(), now.minus(TrendingFilmsIndex.Window.WEEK.getLength()));
+        int[] counts = batchUpdateInOrder(
+                validOperations,
+                operation -> operation.getAction() == BatchAction.ADD
+                        ? FILMS_ADD_LIKE_IF_ABSENT_QUERY
+                        : FILMS_DELETE_LIKE_QUERY,
+                operation -> operation.getAction() == BatchAction.ADD
+                        ? new Object[]{operation.getFilmId(), operation.getUserId(), Timestamp.from(now),
+                        operation.getFilmId(), operation.getUserId()}
+                        : new Object[]{operation.getFilmId(), operation.getUserId()});
+
+        Map<Long, Long> likesDelta = new HashMap<>();
+        // Изменения индексов в памяти применяются после фиксации пакета.
+        List<Runnable> committed = new ArrayList<>();
+        for (int pos = 0; pos < counts.length; pos++) {
+            int idx = validIndexes.get(pos);
+            LikeOperation operation = validOperations.get(pos);
+            if (counts[pos] > 0) {
+                likesDelta.merge(operation.getFilmId(), operation.getAction() == BatchAction.ADD ? 1L : -1L, Long::sum);
+                LikeKey key = new LikeKey(operation.getUserId(), operation.getFilmId());
+                if (operation.getAction() == BatchAction.ADD) {
+                    committed.add(() -> likesGraph.add(operation.getUserId(), operation.getFilmId()));
+                    committed.add(() -> trendingFilmsIndex.addLike(operation.getFilmId(), now));
+                    createdAt.put(key, now);
+                } else {
+                    committed.add(() -> likesGraph.remove(operation.getUserId(), operation.getFilmId()));
+                    Instant likedAt = createdAt.remove(key);
+                    if (likedAt != null) {
+                        committed.add(() -> trendingFilmsIndex.removeLike(operation.getFilmId(), likedAt));
+                    }
+                }
+                results[idx] = new BatchItemResult(idx, BatchItemStatus.OK, null);
+            } else {
+                results[idx] = new BatchItemResult(idx, BatchItemStatus.UNCHANGED, null);
+            }
+        }
+        likesDelta.keySet().forEach(filmVersions::bump);
+        likesDelta.values().removeIf(delta -> delta == 0);
+        batchUpdateInOrder(
+                List.copyOf(likesDelta.entrySet()),
+                entry -> FILMS_CHANGE_LIKES_COUNT_QUERY,
+                entry -> new Object[]{entry.getValue(), entry.getKey()});
+        afterCommit(() -> {
+            likesDelta.forEach(popularFilmsIndex::changeLikes);
+            committed.forEach(Runnable::run);
+        });
+        return List.of(results);
+    }
+
     @Override
     public Collection<Film> getPopular(Long count) {
         if (count <= 0) throw new ValidationException("Параметр count должен быть больше 0");
         log.info("Получение списка {} популярных фильмов", count);
-        return findMany(
-                FILMS_GET_POPULAR_QUERY,
-                count);
+        while (true) {
+            List<Long> ids = popularFilmsIndex.top(count);
+            Map<Long, Film> filmById = findByIds(ids).stream()
+                    .collect(Collectors.toMap(Film::getId, identity()));
+            if (filmById.size() == ids.size()) {
+                return ids.stream()
+                        .map(filmById::get)
+                        .toList();
+            }
+            ids.stream()
+                    .filter(filmId -> !filmById.containsKey(filmId))
+                    .forEach(popularFilmsIndex::remove);
+        }
+    }
+
+    @Override
+    public Collection<Film> getTrending(TrendingFilmsIndex.Window window, int count) {
+        log.info("Получение списка {} трендовых фильмов за {}", count, window.getCode());
+        while (true) {
+            List<Long> ids = trendingFilmsIndex.top(window, count);
+            Map<Long, Film> filmById = findByIds(ids).stream()
+                    .collect(Collectors.toMap(Film::getId, identity()));
+            if (filmById.size() == ids.size()) {
+                return ids.stream()
+                        .map(filmById::get)
+                        .toList();
+            }
+            ids.stream()
+                    .filter(filmId -> !filmById.containsKey(filmId))
+                    .forEach(trendingFilmsIndex::remove);
+        }
+    }
+
+    @Override
+    public Collection<Film> search(String query, Set<FilmSearchIndex.Field> fields, int offset, int limit) {
+        log.info("Поиск фильмов по запросу '{}' в полях {}", query, fields);
+        List<Long> ids = filmSearchIndex.search(query, fields, offset, limit);
+        Map<Long, Film> filmById = findByIds(ids).stream()
+                .collect(Collectors.toMap(Film::getId, identity()));
+        // Фильм мог быть удален между поиском и загрузкой, такие id пропускаются.
+        return ids.stream()
+                .map(filmById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    public Collection<Film> getRecommendations(Long userId, int count) {
+        log.info("Получение {} рекомендаций для пользователя с id = {}", count, userId);
+        List<Long> ids = likesGraph.recommend(userId, count);
+        Map<Long, Film> filmById = findByIds(ids).stream()
+                .collect(Collectors.toMap(Film::getId, identity()));
+        return ids.stream()
+                .map(filmById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    public String getETag(Long id) {
+        // У несуществующего id тоже есть ETag с версией 0, и совпавший If-None-Match дал бы 304 вместо 404
+        if (!knownFilmIds.mightContain(id)) {
+            throw new NotFoundException("Фильм с id = " + id + " не найден");
+        }
+        return filmVersions.getETag(id);
+    }
+
+    // Список зависит и от данных фильмов, и от рейтинга, который меняется в памяти сразу.
+    @Override
+    public String getPopularETag() {
+        return filmVersions.getCollectionETag() + "-" + popularFilmsIndex.version();
     }
 
     @Override
     public boolean isFilmExists(Long id) {
-        return findOne(
-                FILMS_FIND_BY_ID_QUERY,
-                id).isPresent();
+        return knownFilmIds.mightContain(id)
+                && Boolean.TRUE.equals(measure(FILMS_EXISTS_QUERY,
+                () -> jdbc.queryForObject(FILMS_EXISTS_QUERY, Boolean.class, id),
+                exists -> Boolean.TRUE.equals(exists) ? 1 : 0));
     }
 
     public void validate(Film film) {
@@ -239,52 +532,41 @@ public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
     }
 
     public void checkGenresExists(Collection<Genre> genres) {
-        if (genres.isEmpty()) {
-            return;
-        }
-
-        List<Integer> genreIds = genres.stream()
-                .map(Genre::getId)
-                .toList();
-
-        List<Integer> existingGenreIds = findExistingGenreIds(genreIds);
-
         for (Genre genre : genres) {
-            if (!existingGenreIds.contains(genre.getId()))
+            if (!genreStorage.isGenreExists(genre.getId()))
                 throw new ValidationException("Жанр с id = " + genre.getId() + " не найден!");
         }
     }
 
-    private List<Integer> findExistingGenreIds(List<Integer> genreIds) {
-        String inClause = String.join(",", Collections.nCopies(genreIds.size(), "?"));
-        String query = String.format(GENRES_FIND_BY_IDS_QUERY, inClause);
-        return jdbc.queryForList(query, Integer.class, genreIds.toArray());
-    }
-
-
-    private void setFilmsGenres(Collection<Film> films) {
 
-        final Map<Long, Film> filmById = films.stream().collect(Collectors.toMap(Film::getId, identity()));
-
-        String filmsId = films.stream()
-                .map(film -> {
-                    return film.getId().toString();
-                })
-                .collect(Collectors.joining(", "));
-
-        Collection<FilmGenre> filmGenres = filmGenreStorage.findGenresOfFilms(filmsId);
+    private List<Film> findByIds(List<Long> ids) {
+        List<Film> films = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += FIND_BY_IDS_CHUNK_SIZE) {
+            Long[] chunk = ids.subList(from, Math.min(ids.size(), from + FIND_BY_IDS_CHUNK_SIZE))
+                    .toArray(Long[]::new);
+            films.addAll(measure(FILMS_FIND_BY_IDS_QUERY,
+                    () -> jdbc.query(FILMS_FIND_BY_IDS_QUERY, filmExtractor, (Object) chunk), List::size));
+        }
+        return films;
+    }
 
-        for (FilmGenre filmGenre : filmGenres) {
-            Film film = filmById.get(filmGenre.getFilmId());
-            if (film != null) {
-                film.getGenres().add(new Genre(filmGenre.getGenreId(), filmGenre.getGenre()));
-            }
+    // Время лайков этих пользователей не раньше since: по нему отмена лайка вычитается из нужной корзины трендов.
+    private Map<LikeKey, Instant> findRecentLikes(List<Long> userIds, Instant since) {
+        Map<LikeKey, Instant> createdAt = new HashMap<>();
+        List<Long> distinctIds = List.copyOf(new HashSet<>(userIds));
+        for (int from = 0; from < distinctIds.size(); from += batchChunkSize) {
+            Long[] chunk = distinctIds.subList(from, Math.min(distinctIds.size(), from + batchChunkSize))
+                    .toArray(Long[]::new);
+            forEachRow(FILMS_FIND_RECENT_LIKES_QUERY, rs -> createdAt.put(
+                    new LikeKey(rs.getLong("USER_ID"), rs.getLong("FILMS_ID")),
+                    rs.getTimestamp("CREATED_AT").toInstant()), chunk, Timestamp.from(since));
         }
+        return createdAt;
     }
 
     private void updateGenres(Set<Genre> genres, Long id) {
         if (!genres.isEmpty()) {
-            jdbc.batchUpdate(
+            measure(FILMS_INSERT_FILMS_GENRE_QUERY, () -> jdbc.batchUpdate(
                     FILMS_INSERT_FILMS_GENRE_QUERY,
                     genres.stream()
                             .map(genre -> new Object[]{id, genre.getId()})
@@ -294,7 +576,10 @@ public class FilmDbStorage extends BaseDbStorage<Film> implements FilmStorage {
                         ps.setLong(1, (Long) argument[0]);
                         ps.setInt(2, (Integer) argument[1]);
                     }
-            );
+            ), BaseDbStorage::sum);
         }
     }
-}
\ No newline at end of file
+
+    private record LikeKey(long userId, long filmId) {
+    }
+}
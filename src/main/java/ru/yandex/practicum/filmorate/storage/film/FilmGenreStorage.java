@@ -1,9 +0,0 @@
-package ru.yandex.practicum.filmorate.storage.film;
-
-import ru.yandex.practicum.filmorate.model.FilmGenre;
-
-import java.util.Collection;
-
-public interface FilmGenreStorage {
-    Collection<FilmGenre> findGenresOfFilms(String filmsId);
-}
\ No newline at end of file
@@ -0,0 +1,301 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.FullScan;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Обратный индекс по названию и описанию фильмов. Загружается при старте
+// и дальше поддерживается вызовами из FilmDbStorage, как и рейтинг популярных фильмов.
+// Найденный фильм должен содержать все слова запроса, последнее слово ищется по префиксу.
+// Релевантность — TF-IDF с весом поля, умноженная на поправку за число лайков.
+// Слово, которое есть в большинстве фильмов, считается стоп-словом: оно только фильтрует
+// результаты и не влияет на релевантность. Запрос из одних стоп-слов ранжируется по лайкам
+// и останавливается на нужной странице, а не считает веса всех фильмов.
+@Slf4j
+@Component
+public class FilmSearchIndex {
+
+    @FullScan("Загрузка поискового индекса в память")
+    private static final String FILMS_FIND_ALL_TEXT_QUERY = """
+            SELECT FILMS_ID, NAME, DESCRIPTION
+            FROM FILMS;
+            """;
+
+    private static final Pattern TOKEN = Pattern.compile("[\\p{L}\\p{N}]+");
+    private static final double LIKES_BOOST = 0.1;
+    private static final double STOP_WORD_SHARE = 0.5;
+    // На маленьком каталоге доля фильмов со словом ничего не говорит о слове.
+    private static final int STOP_WORD_MIN_FILMS = 1000;
+
+    public enum Field {
+        TITLE(2.0),
+        DESCRIPTION(1.0);
+
+        private final double weight;
+
+        Field(double weight) {
+            this.weight = weight;
+        }
+    }
+
+    private final JdbcTemplate jdbc;
+    private final PopularFilmsIndex popularFilmsIndex;
+    private final Map<Field, FieldIndex> fields = new EnumMap<>(Field.class);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Наибольший id в индексе — размер массивов очков при поиске.
+    private long maxFilmId;
+
+    public FilmSearchIndex(JdbcTemplate jdbc, PopularFilmsIndex popularFilmsIndex) {
+        this.jdbc = jdbc;
+        this.popularFilmsIndex = popularFilmsIndex;
+        for (Field field : Field.values()) {
+            fields.put(field, new FieldIndex());
+        }
+    }
+
+    @PostConstruct
+    public void load() {
+        lock.writeLock().lock();
+        try {
+            fields.values().forEach(FieldIndex::clear);
+            maxFilmId = 0;
+            jdbc.query(FILMS_FIND_ALL_TEXT_QUERY, rs -> {
+                long filmId = rs.getLong("FILMS_ID");
+                maxFilmId = Math.max(maxFilmId, filmId);
+                fields.get(Field.TITLE).put(filmId, rs.getString("NAME"));
+                fields.get(Field.DESCRIPTION).put(filmId, rs.getString("DESCRIPTION"));
+            });
+            log.info("Поисковый индекс загружен, фильмов: {}, слов: {}",
+                    fields.get(Field.TITLE).documents.size(),
+                    fields.values().stream().mapToInt(field -> field.postings.size()).sum());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void put(long filmId, String name, String description) {
+        lock.writeLock().lock();
+        try {
+            maxFilmId = Math.max(maxFilmId, filmId);
+            fields.get(Field.TITLE).put(filmId, name);
+            fields.get(Field.DESCRIPTION).put(filmId, description);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long filmId) {
+        lock.writeLock().lock();
+        try {
+            fields.values().forEach(field -> field.remove(filmId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Возвращает id фильмов страницы результатов в порядке убывания релевантности.
+    public List<Long> search(String query, Set<Field> searchFields, int offset, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || searchFields.isEmpty()) {
+            return List.of();
+        }
+        long size = (long) offset + limit;
+        List<Integer> ranked;
+        lock.readLock().lock();
+        try {
+            List<Integer> scored = new ArrayList<>();
+            List<Integer> filters = new ArrayList<>();
+            for (int i = 0; i < tokens.size(); i++) {
+                (isStopWord(tokens.get(i), i == tokens.size() - 1, searchFields) ? filters : scored).add(i);
+            }
+            ranked = scored.isEmpty()
+                    ? byLikes(tokens, filters, searchFields, size)
+                    : byRelevance(tokens, scored, filters, searchFields, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return ranked.stream()
+                .skip(offset)
+                .map(Integer::longValue)
+                .toList();
+    }
+
+    private List<Integer> byLikes(List<String> tokens, List<Integer> filters, Set<Field> searchFields, long size) {
+        List<Integer> ranked = new ArrayList<>();
+        for (long filmId : popularFilmsIndex.ranked()) {
+            if (ranked.size() >= size) {
+                break;
+            }
+            if (containsAll(filmId, tokens, filters, searchFields)) {
+                ranked.add((int) filmId);
+            }
+        }
+        return ranked;
+    }
+
+    private List<Integer> byRelevance(List<String> tokens, List<Integer> scored, List<Integer> filters,
+                                      Set<Field> searchFields, long size) {
+        double[] scores = new double[Math.toIntExact(maxFilmId + 1)];
+        int[] matched = new int[scores.length];
+        if (!score(tokens, scored, searchFields, scores, matched)) {
+            return List.of();
+        }
+
+        // Куча из offset + limit лучших результатов, в вершине — худший из них.
+        Comparator<Integer> order = Comparator.<Integer>comparingDouble(slot -> scores[slot]).reversed()
+                .thenComparingInt(slot -> slot);
+        PriorityQueue<Integer> best = new PriorityQueue<>(order.reversed());
+        for (int slot = 0; slot < scores.length; slot++) {
+            if (matched[slot] != scored.size() || !containsAll(slot, tokens, filters, searchFields)) {
+                continue;
+            }
+            scores[slot] *= 1 + LIKES_BOOST * Math.log1p(popularFilmsIndex.likes(slot));
+            if (best.size() < size) {
+                best.add(slot);
+            } else if (order.compare(slot, best.peek()) < 0) {
+                best.poll();
+                best.add(slot);
+            }
+        }
+        List<Integer> ranked = new ArrayList<>(best);
+        ranked.sort(order);
+        return ranked;
+    }
+
+    private boolean isStopWord(String token, boolean prefix, Set<Field> searchFields) {
+        int films = fields.get(Field.TITLE).documents.size();
+        if (films < STOP_WORD_MIN_FILMS) {
+            return false;
+        }
+        return searchFields.stream()
+                .anyMatch(field -> fields.get(field).frequency(token, prefix) > STOP_WORD_SHARE * films);
+    }
+
+    private boolean containsAll(long filmId, List<String> tokens, List<Integer> filters, Set<Field> searchFields) {
+        for (int i : filters) {
+            boolean prefix = i == tokens.size() - 1;
+            if (searchFields.stream().noneMatch(field -> fields.get(field).contains(filmId, tokens.get(i), prefix))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Веса слов складываются в массивы, индексированные id фильма: частое слово дает сотни тысяч
+    // совпадений, и упаковка каждого в Map обходится дороже самого подсчета.
+    // matched[id] — сколько слов запроса подряд нашлось в фильме; фильм без какого-либо слова отбрасывается.
+    private boolean score(List<String> tokens, List<Integer> scored, Set<Field> searchFields,
+                          double[] scores, int[] matched) {
+        for (int n = 0; n < scored.size(); n++) {
+            int i = scored.get(n);
+            boolean prefix = i == tokens.size() - 1;
+            boolean found = false;
+            for (Field field : searchFields) {
+                found |= fields.get(field).score(tokens.get(i), prefix, field.weight, n, scores, matched);
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        Matcher matcher = TOKEN.matcher(text.toLowerCase(Locale.ROOT).replace('ё', 'е'));
+        while (matcher.find()) {
+            tokens.add(matcher.group());
+        }
+        return tokens;
+    }
+
+    // Индекс одного поля: слово -> (id фильма -> число вхождений) и обратное отображение для удаления.
+    private static final class FieldIndex {
+
+        private final TreeMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+        private final Map<Long, Map<String, Integer>> documents = new HashMap<>();
+
+        void put(long filmId, String text) {
+            remove(filmId);
+            Map<String, Integer> frequencies = new HashMap<>();
+            tokenize(text).forEach(token -> frequencies.merge(token, 1, Integer::sum));
+            frequencies.forEach((token, count) -> postings.computeIfAbsent(token, t -> new HashMap<>()).put(filmId, count));
+            documents.put(filmId, frequencies);
+        }
+
+        void remove(long filmId) {
+            Map<String, Integer> frequencies = documents.remove(filmId);
+            if (frequencies == null) {
+                return;
+            }
+            frequencies.keySet().forEach(token -> postings.computeIfPresent(token, (t, films) -> {
+                films.remove(filmId);
+                return films.isEmpty() ? null : films;
+            }));
+        }
+
+        void clear() {
+            postings.clear();
+            documents.clear();
+        }
+
+        // Сколько фильмов содержат слово; для префикса — с повторами, если в фильме несколько таких слов.
+        int frequency(String token, boolean prefix) {
+            return matches(token, prefix).values().stream().mapToInt(Map::size).sum();
+        }
+
+        boolean contains(long filmId, String token, boolean prefix) {
+            Map<String, Integer> frequencies = documents.get(filmId);
+            if (frequencies == null) {
+                return false;
+            }
+            return prefix
+                    ? frequencies.keySet().stream().anyMatch(word -> word.startsWith(token))
+                    : frequencies.containsKey(token);
+        }
+
+        private SortedMap<String, Map<Long, Integer>> matches(String token, boolean prefix) {
+            return prefix
+                    ? postings.subMap(token, token + Character.MAX_VALUE)
+                    : postings.subMap(token, true, token, true);
+        }
+
+        boolean score(String token, boolean prefix, double weight, int tokenIndex, double[] scores, int[] matched) {
+            boolean found = false;
+            for (Map<Long, Integer> films : matches(token, prefix).values()) {
+                double idf = Math.log(1 + (double) documents.size() / films.size());
+                for (Map.Entry<Long, Integer> posting : films.entrySet()) {
+                    int slot = (int) (long) posting.getKey();
+                    if (matched[slot] < tokenIndex) {
+                        continue;
+                    }
+                    matched[slot] = tokenIndex + 1;
+                    scores[slot] += weight * (1 + Math.log(posting.getValue())) * idf;
+                    found = true;
+                }
+            }
+            return found;
+        }
+    }
+}
@@ -1,12 +1,21 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
     Collection<Film> findAll();
 
+    Collection<Film> findPage(long after, int limit);
+
+    void streamAll(Consumer<Film> consumer);
+
     Film findById(Long id);
 
     Film create(Film film);
@@ -19,8 +28,20 @@ public interface FilmStorage {
 
     void deleteLike(Long id, Long userId);
 
+    List<BatchItemResult> applyLikes(List<LikeOperation> operations);
+
     Collection<Film> getPopular(Long count);
 
+    Collection<Film> getTrending(TrendingFilmsIndex.Window window, int count);
+
+    Collection<Film> getRecommendations(Long userId, int count);
+
+    Collection<Film> search(String query, Set<FilmSearchIndex.Field> fields, int offset, int limit);
+
     boolean isFilmExists(Long id);
 
+    String getETag(Long id);
+
+    String getPopularETag();
+
 }
\ No newline at end of file
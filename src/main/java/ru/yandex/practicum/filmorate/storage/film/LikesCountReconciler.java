@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.storage.BaseDbStorage;
+import ru.yandex.practicum.filmorate.storage.FullScan;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Сверяет FILMS.LIKES_COUNT с таблицей LIKES и исправляет расхождения.
+// Счетчик и рейтинг популярных фильмов меняются на одну и ту же разницу, поэтому
+// лайки, поставленные во время сверки, не теряются, а остальные фильмы не затрагиваются.
+@Slf4j
+@Component
+public class LikesCountReconciler {
+
+    @FullScan("Сверка счетчиков всех фильмов")
+    private static final String FILMS_LIKES_COUNT_DRIFT_QUERY = """
+            SELECT f.FILMS_ID, (SELECT COUNT(*) FROM LIKES AS l WHERE l.FILMS_ID = f.FILMS_ID) - f.LIKES_COUNT AS DRIFT
+            FROM FILMS AS f
+            WHERE f.LIKES_COUNT <> (SELECT COUNT(*) FROM LIKES AS l WHERE l.FILMS_ID = f.FILMS_ID)
+            ORDER BY f.FILMS_ID;
+            """;
+    private static final String FILMS_CHANGE_LIKES_COUNT_QUERY = """
+            UPDATE FILMS
+            SET LIKES_COUNT = LIKES_COUNT + ?
+            WHERE FILMS_ID = ?;
+            """;
+
+    private final JdbcTemplate jdbc;
+    private final PopularFilmsIndex popularFilmsIndex;
+
+    public LikesCountReconciler(JdbcTemplate jdbc, PopularFilmsIndex popularFilmsIndex) {
+        this.jdbc = jdbc;
+        this.popularFilmsIndex = popularFilmsIndex;
+    }
+
+    @Transactional
+    @Scheduled(initialDelayString = "${filmorate.likes.reconcile-delay:PT1H}",
+            fixedDelayString = "${filmorate.likes.reconcile-delay:PT1H}")
+    public int reconcile() {
+        List<long[]> drifts = jdbc.query(FILMS_LIKES_COUNT_DRIFT_QUERY,
+                (rs, rowNum) -> new long[]{rs.getLong("FILMS_ID"), rs.getLong("DRIFT")});
+        if (drifts.isEmpty()) {
+            return 0;
+        }
+        // Разница прибавляется, а не записывается итог: параллельный лайк меняет и счетчик, и LIKES.
+        List<long[]> repaired = new ArrayList<>();
+        for (long[] drift : drifts) {
+            if (jdbc.update(FILMS_CHANGE_LIKES_COUNT_QUERY, drift[1], drift[0]) > 0) {
+                repaired.add(drift);
+            }
+        }
+        BaseDbStorage.afterCommit(() -> repaired.forEach(drift -> popularFilmsIndex.changeLikes(drift[0], drift[1])));
+        log.warn("Исправлено количество лайков у {} фильмов", repaired.size());
+        return repaired.size();
+    }
+}
@@ -0,0 +1,193 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.FullScan;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static ru.yandex.practicum.filmorate.storage.SortedLongArrays.delete;
+import static ru.yandex.practicum.filmorate.storage.SortedLongArrays.insert;
+
+// Лайки в памяти: для каждого пользователя отсортированный массив id понравившихся фильмов,
+// для каждого фильма — id пользователей, которые его лайкнули. Поддерживается вызовами
+// из FilmDbStorage, поэтому рекомендации не требуют пересчета матрицы сходства.
+// Рекомендации — item-item косинусное сходство: вклад фильма g равен
+// сумме по лайкнутым фильмам f числа общих лайков f и g, деленной на sqrt(|f| * |g|).
+// На запрос просматривается не больше max-neighbours лайкнувших, поровну на каждый лайкнутый
+// фильм (но не меньше MIN_NEIGHBOURS); у популярных фильмов берется равномерная выборка.
+@Slf4j
+@Component
+public class LikesGraph {
+
+    @FullScan("Загрузка лайков в память")
+    private static final String LIKES_FIND_ALL_QUERY = """
+            SELECT USER_ID, FILMS_ID
+            FROM LIKES
+            ORDER BY USER_ID, FILMS_ID;
+            """;
+
+    private static final long[] EMPTY = new long[0];
+    private static final int MIN_NEIGHBOURS = 10;
+
+    private final JdbcTemplate jdbc;
+    private final int maxNeighbours;
+    private final Map<Long, long[]> filmsByUser = new ConcurrentHashMap<>();
+    private final Map<Long, long[]> usersByFilm = new ConcurrentHashMap<>();
+    private final AtomicLong maxFilmId = new AtomicLong();
+    private final ReentrantLock loadLock = new ReentrantLock();
+
+    public LikesGraph(JdbcTemplate jdbc,
+                      @Value("${filmorate.recommendations.max-neighbours:1000}") int maxNeighbours) {
+        this.jdbc = jdbc;
+        this.maxNeighbours = maxNeighbours;
+    }
+
+    @PostConstruct
+    public void load() {
+        loadLock.lock();
+        try {
+            filmsByUser.clear();
+            usersByFilm.clear();
+            int[] likes = {0};
+            jdbc.query(LIKES_FIND_ALL_QUERY, rs -> {
+                add(rs.getLong("USER_ID"), rs.getLong("FILMS_ID"));
+                likes[0]++;
+            });
+            log.info("Лайки загружены в память: {}", likes[0]);
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    public void add(long userId, long filmId) {
+        filmsByUser.compute(userId, (id, films) -> insert(films, filmId));
+        usersByFilm.compute(filmId, (id, users) -> insert(users, userId));
+        maxFilmId.accumulateAndGet(filmId, Math::max);
+    }
+
+    public void remove(long userId, long filmId) {
+        filmsByUser.computeIfPresent(userId, (id, films) -> delete(films, filmId));
+        usersByFilm.computeIfPresent(filmId, (id, users) -> delete(users, userId));
+    }
+
+    public long[] filmsOf(long userId) {
+        return filmsByUser.getOrDefault(userId, EMPTY);
+    }
+
+    // Возвращает до count id фильмов, которых пользователь еще не лайкал, по убыванию сходства.
+    public List<Long> recommend(long userId, int count) {
+        long[] liked = filmsOf(userId);
+        if (liked.length == 0) {
+            return List.of();
+        }
+        // Оценки лежат в массиве по id фильма: id выдаются последовательно, массив не разрежен.
+        int size = Math.toIntExact(maxFilmId.get() + 1);
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int chunk = Math.max(1, liked.length / (pool.getParallelism() * 2));
+        int neighbours = Math.max(MIN_NEIGHBOURS, maxNeighbours / liked.length);
+        double[] scores = pool.invoke(new ScoreTask(liked, 0, liked.length, chunk, size, neighbours));
+
+        for (long filmId : liked) {
+            if (filmId < size) {
+                scores[(int) filmId] = 0;
+            }
+        }
+        // Лучшие limit фильмов по убыванию оценки; фильмы перебираются по возрастанию id,
+        // поэтому при равной оценке выше оказывается меньший id.
+        int limit = Math.min(count, size);
+        int[] topIds = new int[limit];
+        double[] topScores = new double[limit];
+        int found = 0;
+        for (int filmId = 0; filmId < scores.length; filmId++) {
+            double score = scores[filmId];
+            // Деление на sqrt(|g|) только уменьшает оценку, поэтому кандидат, который и до деления
+            // не лучше худшего из найденных, отбрасывается без обращения к usersByFilm.
+            if (score == 0 || found == limit && score <= topScores[limit - 1]) {
+                continue;
+            }
+            score /= Math.sqrt(Math.max(1, usersByFilm.getOrDefault((long) filmId, EMPTY).length));
+            if (found == limit && score <= topScores[limit - 1]) {
+                continue;
+            }
+            int pos = found < limit ? found++ : limit - 1;
+            while (pos > 0 && topScores[pos - 1] < score) {
+                topIds[pos] = topIds[pos - 1];
+                topScores[pos] = topScores[pos - 1];
+                pos--;
+            }
+            topIds[pos] = filmId;
+            topScores[pos] = score;
+        }
+        return Arrays.stream(topIds, 0, found)
+                .mapToObj(filmId -> (long) filmId)
+                .toList();
+    }
+
+    // Суммирует вклад фильмов liked[from..to) в оценки всех фильмов, которые лайкали их соседи.
+    private final class ScoreTask extends RecursiveTask<double[]> {
+
+        private final long[] liked;
+        private final int from;
+        private final int to;
+        private final int chunk;
+        private final int size;
+        private final int neighbours;
+
+        ScoreTask(long[] liked, int from, int to, int chunk, int size, int neighbours) {
+            this.liked = liked;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+            this.size = size;
+            this.neighbours = neighbours;
+        }
+
+        @Override
+        protected double[] compute() {
+            if (to - from <= chunk) {
+                double[] scores = new double[size];
+                for (int i = from; i < to; i++) {
+                    accumulate(liked[i], scores);
+                }
+                return scores;
+            }
+            int middle = (from + to) >>> 1;
+            ScoreTask left = new ScoreTask(liked, from, middle, chunk, size, neighbours);
+            left.fork();
+            double[] scores = new ScoreTask(liked, middle, to, chunk, size, neighbours).compute();
+            double[] other = left.join();
+            for (int i = 0; i < scores.length; i++) {
+                scores[i] += other[i];
+            }
+            return scores;
+        }
+
+        private void accumulate(long filmId, double[] scores) {
+            long[] users = usersByFilm.getOrDefault(filmId, EMPTY);
+            if (users.length == 0) {
+                return;
+            }
+            int step = Math.max(1, (users.length + neighbours - 1) / neighbours);
+            // Вклад выборки масштабируется обратно к полному числу лайкнувших.
+            double weight = step / Math.sqrt(users.length);
+            for (int i = 0; i < users.length; i += step) {
+                for (long similar : filmsOf(users[i])) {
+                    if (similar < size) {
+                        scores[(int) similar] += weight;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.FullScan;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Рейтинг фильмов по количеству лайков. Загружается из FILMS.LIKES_COUNT при старте
+// и дальше поддерживается вызовами из FilmDbStorage, поэтому запрос популярных
+// фильмов не агрегирует таблицу LIKES.
+@Slf4j
+@Component
+public class PopularFilmsIndex {
+
+    @FullScan("Загрузка рейтинга в память")
+    private static final String LIKES_COUNT_QUERY = """
+            SELECT FILMS_ID, LIKES_COUNT
+            FROM FILMS
+            ORDER BY LIKES_COUNT DESC, FILMS_ID;
+            """;
+
+    private static final Comparator<Entry> RANK_ORDER = Comparator
+            .comparingLong(Entry::likes).reversed()
+            .thenComparingLong(Entry::filmId);
+
+    private final JdbcTemplate jdbc;
+    private final ConcurrentMap<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Entry> ranked = new ConcurrentSkipListSet<>(RANK_ORDER);
+    // Растет при каждом изменении рейтинга, входит в ETag списка популярных фильмов.
+    private final AtomicLong version = new AtomicLong();
+
+    public PopularFilmsIndex(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    @PostConstruct
+    public void load() {
+        Set<Long> loaded = new HashSet<>();
+        jdbc.query(LIKES_COUNT_QUERY, rs -> {
+            long filmId = rs.getLong("FILMS_ID");
+            put(filmId, rs.getLong("LIKES_COUNT"));
+            loaded.add(filmId);
+        });
+        entries.keySet().stream()
+                .filter(filmId -> !loaded.contains(filmId))
+                .forEach(this::remove);
+        version.incrementAndGet();
+        log.info("Рейтинг популярных фильмов загружен, фильмов: {}", entries.size());
+    }
+
+    public void put(long filmId, long likes) {
+        entries.compute(filmId, (id, old) -> replace(old, new Entry(id, likes)));
+    }
+
+    public void addLike(long filmId) {
+        changeLikes(filmId, 1);
+    }
+
+    public void removeLike(long filmId) {
+        changeLikes(filmId, -1);
+    }
+
+    public void remove(long filmId) {
+        entries.computeIfPresent(filmId, (id, old) -> {
+            ranked.remove(old);
+            version.incrementAndGet();
+            return null;
+        });
+    }
+
+    public long likes(long filmId) {
+        Entry entry = entries.get(filmId);
+        return entry == null ? 0 : entry.likes();
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    public List<Long> top(long count) {
+        List<Long> result = new ArrayList<>();
+        Iterator<Entry> iterator = ranked.iterator();
+        while (result.size() < count && iterator.hasNext()) {
+            result.add(iterator.next().filmId());
+        }
+        return result;
+    }
+
+    // Id фильмов в порядке рейтинга, без копирования: обход можно прервать на нужной странице.
+    public Iterable<Long> ranked() {
+        return () -> ranked.stream().map(Entry::filmId).iterator();
+    }
+
+    public void changeLikes(long filmId, long delta) {
+        entries.compute(filmId, (id, old) -> {
+            long likes = old == null ? 0 : old.likes();
+            return replace(old, new Entry(id, Math.max(0, likes + delta)));
+        });
+    }
+
+    private Entry replace(Entry old, Entry entry) {
+        if (old != null) {
+            ranked.remove(old);
+        }
+        ranked.add(entry);
+        version.incrementAndGet();
+        return entry;
+    }
+
+    private record Entry(long filmId, long likes) {
+    }
+}
@@ -0,0 +1,251 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Рейтинги фильмов по лайкам за последний час, сутки и неделю. Для каждого окна лайки считаются
+// в кольце корзин фиксированной ширины и в сумме по фильму; когда корзина выходит из окна,
+// ее счетчики вычитаются из сумм. Поэтому запрос трендов не агрегирует LIKES по времени,
+// а стоимость устаревания пропорциональна числу устаревших лайков. Окно состоит из целых корзин,
+// текущая из которых заполнена частично: его длина точна с погрешностью в ширину одной корзины.
+@Slf4j
+@Component
+public class TrendingFilmsIndex {
+
+    private static final String LIKES_FIND_RECENT_QUERY = """
+            SELECT FILMS_ID, CREATED_AT
+            FROM LIKES
+            WHERE CREATED_AT >= ?;
+            """;
+
+    private static final Comparator<Entry> RANK_ORDER = Comparator
+            .comparingLong(Entry::likes).reversed()
+            .thenComparingLong(Entry::filmId);
+
+    public enum Window {
+        HOUR("1h", Duration.ofHours(1), 60),
+        DAY("24h", Duration.ofDays(1), 96),
+        WEEK("7d", Duration.ofDays(7), 168);
+
+        private final String code;
+        private final Duration length;
+        private final int buckets;
+
+        Window(String code, Duration length, int buckets) {
+            this.code = code;
+            this.length = length;
+            this.buckets = buckets;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public Duration getLength() {
+            return length;
+        }
+
+        public static Optional<Window> of(String code) {
+            for (Window window : values()) {
+                if (window.code.equalsIgnoreCase(code)) {
+                    return Optional.of(window);
+                }
+            }
+            return Optional.empty();
+        }
+    }
+
+    private final JdbcTemplate jdbc;
+    private final Clock clock;
+    private final Map<Window, WindowCounter> counters = new EnumMap<>(Window.class);
+    // ReentrantLock вместо synchronized: под монитором закрепился бы виртуальный поток.
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @Autowired
+    public TrendingFilmsIndex(JdbcTemplate jdbc) {
+        this(jdbc, Clock.systemUTC());
+    }
+
+    TrendingFilmsIndex(JdbcTemplate jdbc, Clock clock) {
+        this.jdbc = jdbc;
+        this.clock = clock;
+        for (Window window : Window.values()) {
+            counters.put(window, new WindowCounter(window));
+        }
+    }
+
+    @PostConstruct
+    public void load() {
+        Instant since = clock.instant().minus(Window.WEEK.length);
+        lock.lock();
+        try {
+            counters.replaceAll((window, counter) -> new WindowCounter(window));
+            int[] likes = {0};
+            jdbc.query(LIKES_FIND_RECENT_QUERY, rs -> {
+                change(rs.getLong("FILMS_ID"), rs.getTimestamp("CREATED_AT").toInstant(), 1);
+                likes[0]++;
+            }, Timestamp.from(since));
+            log.info("Лайки за последние {} загружены в тренды: {}", Window.WEEK.code, likes[0]);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Instant now() {
+        return clock.instant();
+    }
+
+    public void addLike(long filmId, Instant createdAt) {
+        lock.lock();
+        try {
+            change(filmId, createdAt, 1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void removeLike(long filmId, Instant createdAt) {
+        lock.lock();
+        try {
+            change(filmId, createdAt, -1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void remove(long filmId) {
+        lock.lock();
+        try {
+            counters.values().forEach(counter -> counter.remove(filmId));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public List<Long> top(Window window, int count) {
+        lock.lock();
+        try {
+            WindowCounter counter = counters.get(window);
+            counter.advance(clock.millis());
+            return counter.top(count);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void change(long filmId, Instant createdAt, int delta) {
+        long now = clock.millis();
+        for (WindowCounter counter : counters.values()) {
+            counter.advance(now);
+            counter.change(filmId, createdAt.toEpochMilli(), delta);
+        }
+    }
+
+    // Кольцо корзин одного окна: корзина с номером slot = время / ширина лежит в ячейке slot % buckets.
+    private static final class WindowCounter {
+
+        private final long bucketMillis;
+        private final List<Map<Long, Integer>> buckets;
+        private final Map<Long, Entry> totals = new HashMap<>();
+        private final TreeSet<Entry> ranked = new TreeSet<>(RANK_ORDER);
+        private long currentSlot = Long.MIN_VALUE;
+
+        WindowCounter(Window window) {
+            this.bucketMillis = window.length.toMillis() / window.buckets;
+            this.buckets = new ArrayList<>(window.buckets);
+            for (int i = 0; i < window.buckets; i++) {
+                buckets.add(new HashMap<>());
+            }
+        }
+
+        // Сдвигает окно к текущему времени, вычитая лайки из вышедших из него корзин.
+        void advance(long nowMillis) {
+            long slot = Math.floorDiv(nowMillis, bucketMillis);
+            if (currentSlot != Long.MIN_VALUE && slot > currentSlot) {
+                long expired = Math.min(buckets.size(), slot - currentSlot);
+                for (long next = slot - expired + 1; next <= slot; next++) {
+                    Map<Long, Integer> bucket = buckets.get(index(next));
+                    bucket.forEach((filmId, likes) -> changeTotal(filmId, -likes));
+                    bucket.clear();
+                }
+            }
+            currentSlot = Math.max(currentSlot, slot);
+        }
+
+        // Лайки старше окна пропускаются; лайк "из будущего" (расхождение часов) попадает в текущую корзину.
+        void change(long filmId, long createdMillis, int delta) {
+            long slot = Math.min(Math.floorDiv(createdMillis, bucketMillis), currentSlot);
+            if (slot <= currentSlot - buckets.size()) {
+                return;
+            }
+            Map<Long, Integer> bucket = buckets.get(index(slot));
+            int likes = bucket.getOrDefault(filmId, 0);
+            if (likes + delta < 0) {
+                return;
+            }
+            if (likes + delta == 0) {
+                bucket.remove(filmId);
+            } else {
+                bucket.put(filmId, likes + delta);
+            }
+            changeTotal(filmId, delta);
+        }
+
+        void remove(long filmId) {
+            buckets.forEach(bucket -> bucket.remove(filmId));
+            Entry old = totals.remove(filmId);
+            if (old != null) {
+                ranked.remove(old);
+            }
+        }
+
+        List<Long> top(int count) {
+            List<Long> result = new ArrayList<>(Math.min(count, ranked.size()));
+            Iterator<Entry> iterator = ranked.iterator();
+            while (result.size() < count && iterator.hasNext()) {
+                result.add(iterator.next().filmId());
+            }
+            return result;
+        }
+
+        private void changeTotal(long filmId, long delta) {
+            Entry old = totals.get(filmId);
+            long likes = (old == null ? 0 : old.likes()) + delta;
+            if (old != null) {
+                ranked.remove(old);
+            }
+            if (likes > 0) {
+                Entry entry = new Entry(filmId, likes);
+                totals.put(filmId, entry);
+                ranked.add(entry);
+            } else {
+                totals.remove(filmId);
+            }
+        }
+
+        private int index(long slot) {
+            return (int) Math.floorMod(slot, (long) buckets.size());
+        }
+    }
+
+    private record Entry(long filmId, long likes) {
+    }
+}
@@ -8,6 +8,8 @@ import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.storage.BaseDbStorage;
+import ru.yandex.practicum.filmorate.storage.DictionaryCache;
+import ru.yandex.practicum.filmorate.storage.FullScan;
 
 import java.util.Collection;
 
@@ -15,16 +17,17 @@ import java.util.Collection;
 @Component
 @Primary
 public class GenreDbStorage extends BaseDbStorage<Genre> implements GenreStorage {
+    @FullScan("Справочник загружается целиком")
     private static final String GENRES_FIND_ALL_QUERY = """
-            SELECT *
-            FROM GENRES;
-            """;
-    private static final String GENRES_FIND_BY_ID_QUERY = """
-            SELECT *
+            SELECT GENRE_ID, GENRE_NAME
             FROM GENRES
-            WHERE GENRE_ID = ?;
+            ORDER BY GENRE_ID;
             """;
 
+    private final DictionaryCache<Genre> cache = new DictionaryCache<>(
+            () -> findMany(GENRES_FIND_ALL_QUERY),
+            Genre::getId);
+
     public GenreDbStorage(JdbcTemplate jdbc, RowMapper<Genre> mapper) {
         super(jdbc, mapper);
     }
@@ -32,15 +35,28 @@ public class GenreDbStorage extends BaseDbStorage<Genre> implements GenreStorage
     @Override
     public Collection<Genre> findAll() {
         log.info("Получение списка жанров");
-        return findMany(GENRES_FIND_ALL_QUERY);
+        return cache.findAll();
     }
 
     @Override
     public Genre findById(int id) {
         log.info("Получение жанра с id = {}", id);
-        return findOne(
-                GENRES_FIND_BY_ID_QUERY,
-                id
-        ).orElseThrow(() -> new NotFoundException("Жанр с id = " + id + " не найден!"));
+        return cache.findById(id)
+                .orElseThrow(() -> new NotFoundException("Жанр с id = " + id + " не найден!"));
+    }
+
+    @Override
+    public boolean isGenreExists(int id) {
+        return cache.contains(id);
+    }
+
+    @Override
+    public String getETag() {
+        return cache.getETag();
+    }
+
+    @Override
+    public void invalidate() {
+        cache.invalidate();
     }
 }
\ No newline at end of file
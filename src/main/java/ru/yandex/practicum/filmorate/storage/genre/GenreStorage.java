@@ -9,4 +9,9 @@ public interface GenreStorage {
 
     Genre findById(int id);
 
+    boolean isGenreExists(int id);
+
+    String getETag();
+
+    void invalidate();
 }
\ No newline at end of file
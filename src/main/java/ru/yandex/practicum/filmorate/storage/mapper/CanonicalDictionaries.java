@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.storage.mapper;
+
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Канонические экземпляры рейтингов MPA и жанров: все загруженные из БД фильмы и справочники
+// ссылаются на один объект на пару (id, название), а не создают его на каждую строку.
+// Экземпляры лежат в массивах по id. Массив заменяется копией, когда встречается новый id
+// или изменилось название, поэтому чтение идет без блокировок, а выданные раньше массивы не меняются.
+@Component
+public class CanonicalDictionaries {
+
+    // Справочники маленькие; значения с большими id не кэшируются, чтобы не раздувать массив.
+    private static final int MAX_CACHED_ID = 1024;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile Mpa[] mpaById = new Mpa[0];
+    private volatile Genre[] genresById = new Genre[0];
+
+    public Mpa mpa(int id, String name) {
+        Mpa[] table = mpaById;
+        if (id >= 0 && id < table.length && table[id] != null && Objects.equals(table[id].getName(), name)) {
+            return table[id];
+        }
+        Mpa mpa = new Mpa(id, name);
+        if (id >= 0 && id < MAX_CACHED_ID) {
+            lock.lock();
+            try {
+                mpaById = with(mpaById, id, mpa);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return mpa;
+    }
+
+    public Genre genre(int id, String name) {
+        Genre[] table = genresById;
+        if (id >= 0 && id < table.length && table[id] != null && Objects.equals(table[id].getName(), name)) {
+            return table[id];
+        }
+        Genre genre = new Genre(id, name);
+        if (id >= 0 && id < MAX_CACHED_ID) {
+            lock.lock();
+            try {
+                genresById = with(genresById, id, genre);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return genre;
+    }
+
+    // Текущая таблица жанров по id: содержит все жанры, уже выданные методом genre.
+    public Genre[] genresById() {
+        return genresById;
+    }
+
+    private static <T> T[] with(T[] table, int id, T value) {
+        T[] copy = Arrays.copyOf(table, Math.max(table.length, id + 1));
+        copy[id] = value;
+        return copy;
+    }
+}
@@ -1,20 +0,0 @@
-package ru.yandex.practicum.filmorate.storage.mapper;
-
-import org.springframework.jdbc.core.RowMapper;
-import org.springframework.stereotype.Component;
-import ru.yandex.practicum.filmorate.model.FilmGenre;
-
-import java.sql.ResultSet;
-import java.sql.SQLException;
-
-@Component
-public class FilmGenreRowMapper implements RowMapper<FilmGenre> {
-    @Override
-    public FilmGenre mapRow(ResultSet rs, int rowNum) throws SQLException {
-        return new FilmGenre(
-                rs.getLong("FILMS_ID"),
-                rs.getInt("GENRE_ID"),
-                rs.getString("GENRE_NAME")
-        );
-    }
-}
\ No newline at end of file
@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.storage.mapper;
+
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.GenreSet;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+// Собирает фильмы из строк FILMS + MPA + FILMS_GENRES + GENRES, отсортированных по FILMS_ID:
+// фильм отдается потребителю, как только встречается строка следующего фильма.
+// Жанры фильма собираются в битовую маску канонических экземпляров (GenreSet).
+@Component
+public class FilmResultSetExtractor implements ResultSetExtractor<List<Film>> {
+
+    private final FilmRowMapper filmRowMapper;
+    private final CanonicalDictionaries dictionaries;
+
+    public FilmResultSetExtractor(FilmRowMapper filmRowMapper, CanonicalDictionaries dictionaries) {
+        this.filmRowMapper = filmRowMapper;
+        this.dictionaries = dictionaries;
+    }
+
+    @Override
+    public List<Film> extractData(ResultSet rs) throws SQLException {
+        List<Film> films = new ArrayList<>();
+        extract(rs, films::add);
+        return films;
+    }
+
+    public void extract(ResultSet rs, Consumer<Film> consumer) throws SQLException {
+        RowMapper<Film> filmMapper = null;
+        int filmIdColumn = 0;
+        int genreIdColumn = 0;
+        int genreNameColumn = 0;
+        Film current = null;
+        long genreMask = 0;
+        // Заполняется, только если у фильма есть жанр с id, не помещающимся в маску.
+        Set<Genre> genres = null;
+        int rowNum = 0;
+        while (rs.next()) {
+            // Индексы колонок ищутся один раз, по первой строке.
+            if (filmMapper == null) {
+                filmMapper = filmRowMapper.bind(rs);
+                filmIdColumn = rs.findColumn("FILMS_ID");
+                genreIdColumn = rs.findColumn("GENRE_ID");
+                genreNameColumn = rs.findColumn("GENRE_NAME");
+            }
+            long filmId = rs.getLong(filmIdColumn);
+            if (current == null || current.getId() != filmId) {
+                if (current != null) {
+                    consumer.accept(withGenres(current, genreMask, genres));
+                }
+                current = filmMapper.mapRow(rs, rowNum);
+                genreMask = 0;
+                genres = null;
+            }
+            int genreId = rs.getInt(genreIdColumn);
+            if (!rs.wasNull()) {
+                Genre genre = dictionaries.genre(genreId, rs.getString(genreNameColumn));
+                if (genres == null && GenreSet.fits(genreId)) {
+                    genreMask |= 1L << genreId;
+                } else {
+                    if (genres == null) {
+                        genres = new LinkedHashSet<>(GenreSet.of(dictionaries.genresById(), genreMask));
+                    }
+                    genres.add(genre);
+                }
+            }
+            rowNum++;
+        }
+        if (current != null) {
+            consumer.accept(withGenres(current, genreMask, genres));
+        }
+    }
+
+    private Film withGenres(Film film, long genreMask, Set<Genre> genres) {
+        film.setGenres(genres != null ? genres : GenreSet.of(dictionaries.genresById(), genreMask));
+        return film;
+    }
+}
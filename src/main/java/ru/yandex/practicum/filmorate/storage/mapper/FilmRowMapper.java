@@ -6,26 +6,36 @@ import ru.yandex.practicum.filmorate.model.Film;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.Objects;
+import java.time.LocalDate;
 
+// Ожидает в строке колонки FILMS и MPA (RATING_ID, MPA_NAME).
 @Component
-public class FilmRowMapper implements RowMapper<Film> {
+public class FilmRowMapper implements IndexedRowMapper<Film> {
 
-    private final MpaMapper mpaMapper;
+    private final CanonicalDictionaries dictionaries;
 
-    public FilmRowMapper(MpaMapper mpaMapper) {
-        this.mpaMapper = mpaMapper;
+    public FilmRowMapper(CanonicalDictionaries dictionaries) {
+        this.dictionaries = dictionaries;
     }
 
     @Override
-    public Film mapRow(ResultSet rs, int rowNum) throws SQLException {
-        Film film = new Film();
-        film.setId(rs.getLong("FILMS_ID"));
-        film.setName(rs.getString("NAME"));
-        film.setDescription(rs.getString("DESCRIPTION"));
-        film.setReleaseDate(rs.getDate("RELEASE_DATE").toLocalDate());
-        film.setDuration(rs.getInt("DURATION"));
-        film.setMpa(Objects.requireNonNull(mpaMapper.mapRow(rs, rowNum)));
-        return film;
+    public RowMapper<Film> bind(ResultSet rs) throws SQLException {
+        int id = rs.findColumn("FILMS_ID");
+        int name = rs.findColumn("NAME");
+        int description = rs.findColumn("DESCRIPTION");
+        int releaseDate = rs.findColumn("RELEASE_DATE");
+        int duration = rs.findColumn("DURATION");
+        int ratingId = rs.findColumn("RATING_ID");
+        int mpaName = rs.findColumn("MPA_NAME");
+        return (row, rowNum) -> {
+            Film film = new Film();
+            film.setId(row.getLong(id));
+            film.setName(row.getString(name));
+            film.setDescription(row.getString(description));
+            film.setReleaseDate(row.getObject(releaseDate, LocalDate.class));
+            film.setDuration(row.getInt(duration));
+            film.setMpa(dictionaries.mpa(row.getInt(ratingId), row.getString(mpaName)));
+            return film;
+        };
     }
-}
\ No newline at end of file
+}
@@ -9,11 +9,15 @@ import java.sql.SQLException;
 
 @Component
 public class GenreRowMapper implements RowMapper<Genre> {
+
+    private final CanonicalDictionaries dictionaries;
+
+    public GenreRowMapper(CanonicalDictionaries dictionaries) {
+        this.dictionaries = dictionaries;
+    }
+
     @Override
     public Genre mapRow(ResultSet rs, int rowNum) throws SQLException {
-        Genre genre = new Genre();
-        genre.setId(rs.getInt("GENRE_ID"));
-        genre.setName(rs.getString("GENRE_NAME"));
-        return genre;
+        return dictionaries.genre(rs.getInt("GENRE_ID"), rs.getString("GENRE_NAME"));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.storage.mapper;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// Маппер, который находит индексы колонок по имени один раз на ResultSet: bind возвращает
+// маппер с разрешенными индексами, и дальше все строки результата читаются по индексам.
+// Одиночный mapRow разрешает индексы заново, поэтому для выборок из многих строк нужен bind.
+public interface IndexedRowMapper<T> extends RowMapper<T> {
+
+    RowMapper<T> bind(ResultSet rs) throws SQLException;
+
+    @Override
+    default T mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return bind(rs).mapRow(rs, rowNum);
+    }
+}
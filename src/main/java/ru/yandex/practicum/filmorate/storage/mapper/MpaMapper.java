@@ -9,11 +9,15 @@ import java.sql.SQLException;
 
 @Component
 public class MpaMapper implements RowMapper<Mpa> {
+
+    private final CanonicalDictionaries dictionaries;
+
+    public MpaMapper(CanonicalDictionaries dictionaries) {
+        this.dictionaries = dictionaries;
+    }
+
     @Override
     public Mpa mapRow(ResultSet rs, int rowNum) throws SQLException {
-        Mpa mpa = new Mpa();
-        mpa.setId(rs.getInt("RATING_ID"));
-        mpa.setName(rs.getString("MPA_NAME"));
-        return mpa;
+        return dictionaries.mpa(rs.getInt("RATING_ID"), rs.getString("MPA_NAME"));
     }
-}
\ No newline at end of file
+}
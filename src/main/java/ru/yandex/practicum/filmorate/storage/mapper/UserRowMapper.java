@@ -6,18 +6,26 @@ import ru.yandex.practicum.filmorate.model.User;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.LocalDate;
 
 @Component
-public class UserRowMapper implements RowMapper<User> {
+public class UserRowMapper implements IndexedRowMapper<User> {
 
     @Override
-    public User mapRow(ResultSet rs, int rowNum) throws SQLException {
-        User user = new User();
-        user.setId(rs.getLong("USER_ID"));
-        user.setName(rs.getString("NAME"));
-        user.setEmail(rs.getString("EMAIL"));
-        user.setLogin(rs.getString("LOGIN"));
-        user.setBirthday(rs.getDate("BIRTHDAY").toLocalDate());
-        return user;
+    public RowMapper<User> bind(ResultSet rs) throws SQLException {
+        int id = rs.findColumn("USER_ID");
+        int name = rs.findColumn("NAME");
+        int email = rs.findColumn("EMAIL");
+        int login = rs.findColumn("LOGIN");
+        int birthday = rs.findColumn("BIRTHDAY");
+        return (row, rowNum) -> {
+            User user = new User();
+            user.setId(row.getLong(id));
+            user.setName(row.getString(name));
+            user.setEmail(row.getString(email));
+            user.setLogin(row.getString(login));
+            user.setBirthday(row.getObject(birthday, LocalDate.class));
+            return user;
+        };
     }
-}
\ No newline at end of file
+}
@@ -8,6 +8,8 @@ import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.storage.BaseDbStorage;
+import ru.yandex.practicum.filmorate.storage.DictionaryCache;
+import ru.yandex.practicum.filmorate.storage.FullScan;
 
 import java.util.Collection;
 
@@ -15,16 +17,17 @@ import java.util.Collection;
 @Component
 @Primary
 public class MpaDbStorage extends BaseDbStorage<Mpa> implements MpaStorage {
+    @FullScan("Справочник загружается целиком")
     private static final String MPA_FIND_ALL_QUERY = """
-            SELECT *
-            FROM MPA;
-            """;
-    private static final String MPA_FIND_BY_ID_QUERY = """
-            SELECT *
+            SELECT RATING_ID, MPA_NAME
             FROM MPA
-            WHERE RATING_ID = ?;
+            ORDER BY RATING_ID;
             """;
 
+    private final DictionaryCache<Mpa> cache = new DictionaryCache<>(
+            () -> findMany(MPA_FIND_ALL_QUERY),
+            Mpa::getId);
+
     public MpaDbStorage(JdbcTemplate jdbc, RowMapper<Mpa> mapper) {
         super(jdbc, mapper);
     }
@@ -32,22 +35,28 @@ public class MpaDbStorage extends BaseDbStorage<Mpa> implements MpaStorage {
     @Override
     public Collection<Mpa> findAll() {
         log.info("Получение списка рейтингов");
-        return findMany(MPA_FIND_ALL_QUERY);
+        return cache.findAll();
     }
 
     @Override
     public Mpa findById(int id) {
         log.info("Получение рейтинга с id = {}", id);
-        return findOne(
-                MPA_FIND_BY_ID_QUERY,
-                id
-        ).orElseThrow(() -> new NotFoundException("Рейтинг MPA с id = " + id + " не найден!"));
+        return cache.findById(id)
+                .orElseThrow(() -> new NotFoundException("Рейтинг MPA с id = " + id + " не найден!"));
     }
 
     @Override
     public boolean isMpaExists(int id) {
-        return findOne(
-                MPA_FIND_BY_ID_QUERY,
-                id).isPresent();
+        return cache.contains(id);
+    }
+
+    @Override
+    public String getETag() {
+        return cache.getETag();
+    }
+
+    @Override
+    public void invalidate() {
+        cache.invalidate();
     }
 }
\ No newline at end of file
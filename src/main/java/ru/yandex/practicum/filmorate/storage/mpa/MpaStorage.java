@@ -10,4 +10,8 @@ public interface MpaStorage {
     Mpa findById(int id);
 
     boolean isMpaExists(int id);
+
+    String getETag();
+
+    void invalidate();
 }
\ No newline at end of file
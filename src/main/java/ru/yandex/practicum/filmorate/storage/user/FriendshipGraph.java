@@ -0,0 +1,136 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.FullScan;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static ru.yandex.practicum.filmorate.storage.SortedLongArrays.delete;
+import static ru.yandex.practicum.filmorate.storage.SortedLongArrays.insert;
+
+// Граф дружбы в памяти: для каждого пользователя хранятся отсортированные массивы id
+// тех, кого он добавил в друзья (out), и тех, кто добавил его (in).
+// Массивы не изменяются после публикации, каждое изменение заменяет массив целиком.
+@Slf4j
+@Component
+public class FriendshipGraph {
+
+    @FullScan("Загрузка графа дружбы в память")
+    private static final String FRIENDS_FIND_ALL_QUERY = """
+            SELECT USER_ID, FRIEND_ID
+            FROM FRIENDS
+            ORDER BY USER_ID, FRIEND_ID;
+            """;
+
+    private static final long[] EMPTY = new long[0];
+
+    private final JdbcTemplate jdbc;
+    private final Map<Long, long[]> out = new ConcurrentHashMap<>();
+    private final Map<Long, long[]> in = new ConcurrentHashMap<>();
+    private final ReentrantLock loadLock = new ReentrantLock();
+
+    public FriendshipGraph(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    @PostConstruct
+    public void load() {
+        loadLock.lock();
+        try {
+            out.clear();
+            in.clear();
+            int[] edges = {0};
+            jdbc.query(FRIENDS_FIND_ALL_QUERY, rs -> {
+                add(rs.getLong("USER_ID"), rs.getLong("FRIEND_ID"));
+                edges[0]++;
+            });
+            log.info("Граф дружбы загружен, связей: {}", edges[0]);
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    public long[] friendsOf(long userId) {
+        return out.getOrDefault(userId, EMPTY);
+    }
+
+    // Друзьями считаются связи в обе стороны, как и в прежнем SQL-запросе.
+    public long[] commonFriends(long userId, long otherId) {
+        return intersect(
+                union(out.getOrDefault(userId, EMPTY), in.getOrDefault(userId, EMPTY)),
+                union(out.getOrDefault(otherId, EMPTY), in.getOrDefault(otherId, EMPTY)));
+    }
+
+    public void add(long userId, long friendId) {
+        out.compute(userId, (id, friends) -> insert(friends, friendId));
+        in.compute(friendId, (id, followers) -> insert(followers, userId));
+    }
+
+    public void remove(long userId, long friendId) {
+        out.computeIfPresent(userId, (id, friends) -> delete(friends, friendId));
+        in.computeIfPresent(friendId, (id, followers) -> delete(followers, userId));
+    }
+
+    public void removeUser(long userId) {
+        long[] friends = out.remove(userId);
+        if (friends != null) {
+            for (long friendId : friends) {
+                in.computeIfPresent(friendId, (id, followers) -> delete(followers, userId));
+            }
+        }
+        long[] followers = in.remove(userId);
+        if (followers != null) {
+            for (long followerId : followers) {
+                out.computeIfPresent(followerId, (id, list) -> delete(list, userId));
+            }
+        }
+    }
+
+    static long[] union(long[] a, long[] b) {
+        long[] result = new long[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                result[k++] = a[i++];
+            } else if (a[i] > b[j]) {
+                result[k++] = b[j++];
+            } else {
+                result[k++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length) {
+            result[k++] = a[i++];
+        }
+        while (j < b.length) {
+            result[k++] = b[j++];
+        }
+        return k == result.length ? result : Arrays.copyOf(result, k);
+    }
+
+    static long[] intersect(long[] a, long[] b) {
+        long[] result = new long[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[k++] = a[i++];
+                j++;
+            }
+        }
+        return k == result.length ? result : Arrays.copyOf(result, k);
+    }
+}
@@ -1,29 +1,59 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exceptions.DuplicatedDataException;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchAction;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.BatchItemStatus;
+import ru.yandex.practicum.filmorate.model.FriendshipOperation;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.BaseDbStorage;
+import ru.yandex.practicum.filmorate.storage.EntityVersions;
+import ru.yandex.practicum.filmorate.storage.FullScan;
+import ru.yandex.practicum.filmorate.storage.KnownIds;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Slf4j
 @Component
 @Primary
 public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
 
+    @FullScan("Выгрузка всех пользователей")
     private static final String USERS_FIND_ALL_QUERY = """
-            SELECT *
+            SELECT USER_ID, EMAIL, LOGIN, NAME, BIRTHDAY
             FROM USERS;
             """;
+    private static final String USERS_FIND_PAGE_QUERY = """
+            SELECT USER_ID, EMAIL, LOGIN, NAME, BIRTHDAY
+            FROM USERS
+            WHERE USER_ID > ?
+            ORDER BY USER_ID
+            LIMIT ?;
+            """;
+    @FullScan("Потоковая выгрузка всех пользователей")
+    private static final String USERS_STREAM_ALL_QUERY = """
+            SELECT USER_ID, EMAIL, LOGIN, NAME, BIRTHDAY
+            FROM USERS
+            ORDER BY USER_ID;
+            """;
     private static final String USERS_INSERT_QUERY = """
             INSERT INTO USERS ("EMAIL", "LOGIN", "NAME", "BIRTHDAY")
                         VALUES (?, ?, ?, ?);
@@ -37,58 +67,90 @@ public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
             WHERE USER_ID = ?;
             """;
     private static final String USERS_ADD_TO_FRIENDS_QUERY = """
-            INSERT INTO FRIENDS (USER_ID, FRIEND_ID)
+            MERGE INTO FRIENDS (USER_ID, FRIEND_ID)
+            KEY (USER_ID, FRIEND_ID)
             VALUES (?, ?);
             """;
+    private static final String USERS_ADD_TO_FRIENDS_IF_ABSENT_QUERY = """
+            INSERT INTO FRIENDS (USER_ID, FRIEND_ID)
+            SELECT ?, ?
+            WHERE NOT EXISTS (
+                SELECT 1
+                FROM FRIENDS
+                WHERE USER_ID = ?
+                    AND FRIEND_ID = ?
+                );
+            """;
+    // Дружба подтверждена, когда есть связи в обе стороны. Запрос обновляет обе связи пары
+    // по уже зафиксированным данным, поэтому последний из одновременных вызовов оставляет верный статус.
+    private static final String USERS_SYNC_FRIENDSHIP_STATUS_QUERY = """
+            UPDATE FRIENDS AS f
+            SET STATUS = CASE
+                    WHEN EXISTS (
+                        SELECT 1
+                        FROM FRIENDS AS r
+                        WHERE r.USER_ID = f.FRIEND_ID
+                            AND r.FRIEND_ID = f.USER_ID
+                        ) THEN 'CONFIRMED'
+                    ELSE 'PENDING'
+                END
+            WHERE (f.USER_ID, f.FRIEND_ID) IN ((?, ?), (?, ?));
+            """;
     private static final String USERS_DELETE_FROM_FRIENDS_QUERY = """
             DELETE FROM FRIENDS
             WHERE USER_ID = ?
                 AND FRIEND_ID = ?;
             """;
-    private static final String USERS_FIND_ALL_FRIENDS_QUERY = """
-            SELECT *
-            FROM USERS AS u
-            WHERE USER_ID IN (
-                SELECT FRIEND_ID
-                FROM FRIENDS
-                WHERE USER_ID = ?
-                );
-            """;
-    private static final String USERS_FIND_COMMON_FRIENDS_QUERY = """
-            SELECT *
-            FROM USERS AS u
-            WHERE u.USER_ID IN (
-                SELECT friends_of_first.friend
-                FROM (
-                    SELECT FRIEND_ID AS friend FROM FRIENDS WHERE USER_ID = ?
-                    UNION
-                    SELECT USER_ID AS friend FROM FRIENDS WHERE FRIEND_ID = ?
-                    ) AS friends_of_first
-                JOIN (
-                    SELECT FRIEND_ID AS friend FROM FRIENDS WHERE USER_ID = ?
-                    UNION
-                    SELECT USER_ID AS friend FROM FRIENDS WHERE FRIEND_ID = ?
-                    ) AS friends_of_second
-                ON friends_of_first.friend = friends_of_second.friend
-            );
+    private static final String USERS_FIND_BY_IDS_QUERY = """
+            SELECT USER_ID, EMAIL, LOGIN, NAME, BIRTHDAY
+            FROM USERS
+            WHERE USER_ID = ANY(?)
+            ORDER BY USER_ID;
             """;
     private static final String USERS_FIND_BY_ID_QUERY = """
-            SELECT *
+            SELECT USER_ID, EMAIL, LOGIN, NAME, BIRTHDAY
             FROM USERS
             WHERE USER_ID = ?;
             """;
-    private static final String USERS_FIND_BY_EMAIL_QUERY = """
-            SELECT *
+    private static final String USERS_EXISTS_QUERY = """
+            SELECT EXISTS (
+                SELECT 1
+                FROM USERS
+                WHERE USER_ID = ?
+                );
+            """;
+    private static final String USERS_FIND_EXISTING_IDS_QUERY = """
+            SELECT USER_ID
             FROM USERS
-            WHERE "EMAIL" = ?;
+            WHERE USER_ID = ANY(?);
+            """;
+    @FullScan("Загрузка известных id при старте")
+    private static final String USERS_FIND_ALL_IDS_QUERY = """
+            SELECT USER_ID
+            FROM USERS;
             """;
     private static final String USERS_DELETE = """
             DELETE FROM USERS
             WHERE USER_ID = ?;
             """;
 
-    public UserDbStorage(JdbcTemplate jdbc, RowMapper<User> mapper) {
+    private static final String USER_EMAIL_INDEX = "USER_EMAIL_INDEX";
+
+    private final KnownIds knownUserIds = new KnownIds();
+    private final EntityVersions userVersions = new EntityVersions();
+    private final FriendshipGraph friendshipGraph;
+
+    public UserDbStorage(JdbcTemplate jdbc, RowMapper<User> mapper, FriendshipGraph friendshipGraph) {
         super(jdbc, mapper);
+        this.friendshipGraph = friendshipGraph;
+    }
+
+    @PostConstruct
+    public void loadKnownIds() {
+        knownUserIds.clear();
+        forEachRow(USERS_FIND_ALL_IDS_QUERY, rs -> {
+            knownUserIds.add(rs.getLong("USER_ID"));
+        });
     }
 
     @Override
@@ -97,8 +159,23 @@ public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
         return findMany(USERS_FIND_ALL_QUERY);
     }
 
+    @Override
+    public Collection<User> findPage(long after, int limit) {
+        log.info("Получение {} пользователей с id больше {}", limit, after);
+        return findMany(USERS_FIND_PAGE_QUERY, after, limit);
+    }
+
+    @Override
+    public void streamAll(Consumer<User> consumer) {
+        log.info("Потоковая выгрузка списка пользователей");
+        forEachMapped(USERS_STREAM_ALL_QUERY, consumer);
+    }
+
     @Override
     public User findById(Long id) {
+        if (!knownUserIds.mightContain(id)) {
+            throw new NotFoundException("Пользователь с id = " + id + " не найден");
+        }
         List<User> users = findMany(
                 USERS_FIND_BY_ID_QUERY,
                 id
@@ -113,14 +190,21 @@ public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
     @Override
     public User create(User user) {
         validate(user);
-        long id = insertGetKey(
-                USERS_INSERT_QUERY,
-                user.getEmail(),
-                user.getLogin(),
-                user.getName(),
-                java.sql.Date.valueOf(user.getBirthday())
-        );
+        long id;
+        try {
+            id = insertGetKey(
+                    USERS_INSERT_QUERY,
+                    user.getEmail(),
+                    user.getLogin(),
+                    user.getName(),
+                    java.sql.Date.valueOf(user.getBirthday())
+            );
+        } catch (DuplicateKeyException e) {
+            throw duplicatedData(e);
+        }
         user.setId(id);
+        knownUserIds.add(id);
+        userVersions.bump(id);
         log.info("Пользователь {} добавлен в список с id = {}", user.getName(), user.getId());
         return user;
     }
@@ -130,9 +214,13 @@ public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
         if (user.getId() == null) {
             throw new NotFoundException("Id пользователя должен быть указан");
         }
-        if (isUserExists(user.getId())) {
-            validate(user);
-            update(
+        if (!knownUserIds.mightContain(user.getId())) {
+            throw new NotFoundException("Пользователь с id = " + user.getId() + " не найден");
+        }
+        validate(user);
+        int rowsUpdated;
+        try {
+            rowsUpdated = execute(
                     USERS_UPDATE_QUERY,
                     user.getEmail(),
                     user.getLogin(),
@@ -140,102 +228,219 @@ public class UserDbStorage extends BaseDbStorage<User> implements UserStorage {
                     java.sql.Date.valueOf(user.getBirthday()),
                     user.getId()
             );
-            log.info("Пользователь с id = {} обновлен", user.getId());
-            return user;
+        } catch (DuplicateKeyException e) {
+            throw duplicatedData(e);
         }
-        throw new NotFoundException("Пользователь с id = " + user.getId() + " не найден");
+        if (rowsUpdated == 0) {
+            throw new NotFoundException("Пользователь с id = " + user.getId() + " не найден");
+        }
+        userVersions.bump(user.getId());
+        log.info("Пользователь с id = {} обновлен", user.getId());
+        return user;
     }
 
     // удаление юзера по id, модифицировал связи в schema,  при удалении юзераа удаляются зависимые записи по id
     @Override
     public void delete(Long id) {
-        if (!isUserExists(id))
+        if (!knownUserIds.mightContain(id) || !delete(USERS_DELETE, id))
             throw new NotFoundException("Пользователь с id = " + id + " не найден");
-        delete(USERS_DELETE, id);
+        knownUserIds.remove(id);
+        friendshipGraph.removeUser(id);
+        userVersions.bump(id);
         log.info("Пользователь с id = {} удален", id);
     }
 
+    // Повторное добавление ничего не меняет. Метод намеренно без транзакции: статус пары
+    // пересчитывается после фиксации вставки, иначе встречные добавления не увидели бы друг друга.
     @Override
     public void addToFriends(Long id, Long friendId) {
-        if (!isUserExists(id))
-            throw new NotFoundException("Пользователь с id = " + id + " не найден");
-        if (!isUserExists(friendId))
-            throw new NotFoundException("Пользователь с id = " + friendId + " не найден");
+        checkKnown(id);
+        checkKnown(friendId);
         if (Objects.equals(id, friendId))
             throw new ValidationException("Нельзя добавить самого себя в друзья (id = " + id + ")");
-        User user = findOne(
-                USERS_FIND_BY_ID_QUERY,
-                id
-        ).orElse(null);
-        insert(
-                USERS_ADD_TO_FRIENDS_QUERY,
-                id,
-                friendId
-        );
+        try {
+            insert(
+                    USERS_ADD_TO_FRIENDS_QUERY,
+                    id,
+                    friendId
+            );
+        } catch (DuplicateKeyException e) {
+            // Одновременный MERGE той же пары уже вставил строку.
+            log.debug("Пользователь с id = {} уже добавил в друзья пользователя с id = {}", id, friendId);
+        } catch (DataIntegrityViolationException e) {
+            checkExists(id);
+            checkExists(friendId);
+            throw e;
+        }
+        friendshipGraph.add(id, friendId);
+        syncFriendshipStatus(List.of(new long[]{id, friendId}));
         log.info("Пользователь с id = {} и пользователь с id = {} теперь друзья", friendId, id);
     }
 
     @Override
     public void deleteFromFriends(Long id, Long friendId) {
-        if (!isUserExists(id))
-            throw new NotFoundException("Пользователь с id = " + id + " не найден");
-        if (!isUserExists(friendId))
-            throw new NotFoundException("Пользователь с id = " + friendId + " не найден");
-        delete(
+        checkKnown(id);
+        checkKnown(friendId);
+        if (delete(
                 USERS_DELETE_FROM_FRIENDS_QUERY,
                 id,
                 friendId
-        );
+        )) {
+            friendshipGraph.remove(id, friendId);
+            syncFriendshipStatus(List.of(new long[]{id, friendId}));
+        } else {
+            checkExists(id);
+            checkExists(friendId);
+        }
         log.info("Пользователь с id = {} и пользователь с id = {} больше не друзья", friendId, id);
     }
 
+    @Override
+    @Transactional
+    public List<BatchItemResult> applyFriendships(List<FriendshipOperation> operations) {
+        log.info("Пакетная обработка {} операций с друзьями", operations.size());
+        BatchItemResult[] results = new BatchItemResult[operations.size()];
+        Set<Long> existingIds = findExistingIds(USERS_FIND_EXISTING_IDS_QUERY, operations.stream()
+                .flatMap(operation -> Stream.of(operation.getUserId(), operation.getFriendId()))
+                .filter(knownUserIds::mightContain)
+                .toList());
+
+        List<Integer> validIndexes = new ArrayList<>();
+        for (int idx = 0; idx < operations.size(); idx++) {
+            FriendshipOperation operation = operations.get(idx);
+            if (operation.getUserId() == null || operation.getFriendId() == null || operation.getAction() == null) {
+                results[idx] = new BatchItemResult(idx, BatchItemStatus.INVALID, "Не указаны пользователи или действие");
+            } else if (Objects.equals(operation.getUserId(), operation.getFriendId())) {
+                results[idx] = new BatchItemResult(idx, BatchItemStatus.INVALID,
+                        "Нельзя добавить самого себя в друзья (id = " + operation.getUserId() + ")");
+            } else if (!existingIds.contains(operation.getUserId())) {
+                results[idx] = new BatchItemResult(idx, BatchItemStatus.NOT_FOUND,
+                        "Пользователь с id = " + operation.getUserId() + " не найден");
+            } else if (!existingIds.contains(operation.getFriendId())) {
+                results[idx] = new BatchItemResult(idx, BatchItemStatus.NOT_FOUND,
+                        "Пользователь с id = " + operation.getFriendId() + " не найден");
+            } else {
+                validIndexes.add(idx);
+            }
+        }
+
+        int[] counts = batchUpdateInOrder(
+                validIndexes.stream().map(operations::get).toList(),
+                operation -> operation.getAction() == BatchAction.ADD
+                        ? USERS_ADD_TO_FRIENDS_IF_ABSENT_QUERY
+                        : USERS_DELETE_FROM_FRIENDS_QUERY,
+                operation -> operation.getAction() == BatchAction.ADD
+                        ? new Object[]{operation.getUserId(), operation.getFriendId(),
+                        operation.getUserId(), operation.getFriendId()}
+                        : new Object[]{operation.getUserId(), operation.getFriendId()});
+        List<long[]> changedPairs = new ArrayList<>();
+        // Изменения графа в памяти применяются после фиксации пакета.
+        List<Runnable> committed = new ArrayList<>();
+        for (int pos = 0; pos < counts.length; pos++) {
+            int idx = validIndexes.get(pos);
+            FriendshipOperation operation = operations.get(idx);
+            if (counts[pos] > 0) {
+                if (operation.getAction() == BatchAction.ADD) {
+                    committed.add(() -> friendshipGraph.add(operation.getUserId(), operation.getFriendId()));
+                } else {
+                    committed.add(() -> friendshipGraph.remove(operation.getUserId(), operation.getFriendId()));
+                }
+                changedPairs.add(new long[]{operation.getUserId(), operation.getFriendId()});
+            }
+            results[idx] = new BatchItemResult(idx, counts[pos] > 0 ? BatchItemStatus.OK : BatchItemStatus.UNCHANGED, null);
+        }
+        // Статусы пересчитываются после фиксации пакета, по той же причине, что и в addToFriends.
+        afterCommit(() -> {
+            committed.forEach(Runnable::run);
+            syncFriendshipStatus(changedPairs);
+        });
+        return List.of(results);
+    }
+
     @Override
     public Collection<User> findAllFriends(Long id) {
-        if (!isUserExists(id))
-            throw new NotFoundException("Пользователь с id = " + id + " не найден");
+        checkKnown(id);
         log.info("Поиск друзей пользователя с id = {}", id);
-        return findMany(
-                USERS_FIND_ALL_FRIENDS_QUERY,
-                id
-        );
+        long[] friendIds = friendshipGraph.friendsOf(id);
+        if (friendIds.length == 0) {
+            checkExists(id);
+            return List.of();
+        }
+        return findByIds(friendIds);
     }
 
     @Override
     public Collection<User> findCommonFriends(Long id, Long otherId) {
-        if (!isUserExists(id))
-            throw new NotFoundException("Пользователь с id = " + id + " не найден");
-        if (!isUserExists(otherId))
-            throw new NotFoundException("Пользователь с id = " + otherId + " не найден");
+        checkKnown(id);
+        checkKnown(otherId);
         log.info("Поиск общих друзей пользователя с id = {} и пользователя с id = {}", id, otherId);
-        return findMany(
-                USERS_FIND_COMMON_FRIENDS_QUERY,
-                id,
-                id,
-                otherId,
-                otherId
-        );
+        long[] commonIds = friendshipGraph.commonFriends(id, otherId);
+        if (commonIds.length == 0) {
+            checkExists(id);
+            checkExists(otherId);
+            return List.of();
+        }
+        return findByIds(commonIds);
     }
 
     @Override
     public boolean isUserExists(Long id) {
-        return findOne(
-                USERS_FIND_BY_ID_QUERY,
-                id).isPresent();
+        return knownUserIds.mightContain(id)
+                && Boolean.TRUE.equals(measure(USERS_EXISTS_QUERY,
+                () -> jdbc.queryForObject(USERS_EXISTS_QUERY, Boolean.class, id),
+                exists -> Boolean.TRUE.equals(exists) ? 1 : 0));
     }
 
-    private void validate(User user) {
-        if (isDuplicatedEmail(user.getEmail())) {
-            throw new DuplicatedDataException("Этот e-mail уже используется");
+    @Override
+    public String getETag(Long id) {
+        // У несуществующего id тоже есть ETag с версией 0, и совпавший If-None-Match дал бы 304 вместо 404
+        if (!knownUserIds.mightContain(id)) {
+            throw new NotFoundException("Пользователь с id = " + id + " не найден");
+        }
+        return userVersions.getETag(id);
+    }
+
+    private void syncFriendshipStatus(List<long[]> pairs) {
+        if (pairs.isEmpty()) {
+            return;
         }
+        List<Object[]> params = pairs.stream()
+                .map(pair -> new Object[]{pair[0], pair[1], pair[1], pair[0]})
+                .toList();
+        measure(USERS_SYNC_FRIENDSHIP_STATUS_QUERY,
+                () -> jdbc.batchUpdate(USERS_SYNC_FRIENDSHIP_STATUS_QUERY, params, batchChunkSize, (ps, pair) -> {
+                    for (int idx = 0; idx < pair.length; idx++) {
+                        ps.setObject(idx + 1, pair[idx]);
+                    }
+                }), BaseDbStorage::sum);
+    }
+
+    private List<User> findByIds(long[] ids) {
+        return findMany(USERS_FIND_BY_IDS_QUERY, (Object) Arrays.stream(ids).boxed().toArray(Long[]::new));
+    }
+
+    // Проверка по битовой карте без запроса в БД
+    private void checkKnown(Long id) {
+        if (!knownUserIds.mightContain(id))
+            throw new NotFoundException("Пользователь с id = " + id + " не найден");
+    }
+
+    private void checkExists(Long id) {
+        if (!isUserExists(id))
+            throw new NotFoundException("Пользователь с id = " + id + " не найден");
+    }
+
+    private void validate(User user) {
         if (user.getLogin().contains(" ")) {
             throw new ValidationException("Логин не может содержать пробелов");
         }
         if (user.getName() == null || user.getName().isBlank()) user.setName(user.getLogin());
     }
 
-    private boolean isDuplicatedEmail(String email) {
-        return findOne(
-                USERS_FIND_BY_EMAIL_QUERY,
-                email).isPresent();
+    private DuplicatedDataException duplicatedData(DuplicateKeyException e) {
+        if (e.getMessage() != null && e.getMessage().contains(USER_EMAIL_INDEX)) {
+            return new DuplicatedDataException("Этот e-mail уже используется");
+        }
+        return new DuplicatedDataException("Этот логин уже используется");
     }
-}
\ No newline at end of file
+}
@@ -1,12 +1,20 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.FriendshipOperation;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
 
 public interface UserStorage {
     Collection<User> findAll();
 
+    Collection<User> findPage(long after, int limit);
+
+    void streamAll(Consumer<User> consumer);
+
     User findById(Long id);
 
     User create(User user);
@@ -19,9 +27,13 @@ public interface UserStorage {
 
     void deleteFromFriends(Long id, Long friendId);
 
+    List<BatchItemResult> applyFriendships(List<FriendshipOperation> operations);
+
     Collection<User> findAllFriends(Long id);
 
     Collection<User> findCommonFriends(Long id, Long otherId);
 
     boolean isUserExists(Long id);
+
+    String getETag(Long id);
 }
\ No newline at end of file
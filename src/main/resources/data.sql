@@ -1,14 +0,0 @@
-INSERT INTO GENRES (GENRE_NAME)
-VALUES ('Комедия'),
-       ('Драма'),
-       ('Мультфильм'),
-       ('Триллер'),
-       ('Документальный'),
-       ('Боевик');
-
-INSERT INTO MPA (MPA_NAME)
-VALUES ('G'),
-       ('PG'),
-       ('PG-13'),
-       ('R'),
-       ('NC-17');
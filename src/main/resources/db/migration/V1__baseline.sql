@@ -1,13 +1,3 @@
-DROP TABLE IF EXISTS
-    FILMS,
-    FILMS_GENRES,
-    FRIENDS,
-    GENRES,
-    LIKES,
-    MPA,
-    USERS
-    CASCADE;
-
 CREATE TABLE IF NOT EXISTS GENRES
 (
     GENRE_ID   INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
@@ -64,23 +54,17 @@ CREATE TABLE IF NOT EXISTS FILMS_GENRES
     CONSTRAINT PK_FILMS_GENRES PRIMARY KEY (FILMS_ID, GENRE_ID)
 );
 
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
+INSERT INTO GENRES (GENRE_NAME)
+VALUES ('Комедия'),
+       ('Драма'),
+       ('Мультфильм'),
+       ('Триллер'),
+       ('Документальный'),
+       ('Боевик');
+
+INSERT INTO MPA (MPA_NAME)
+VALUES ('G'),
+       ('PG'),
+       ('PG-13'),
+       ('R'),
+       ('NC-17');
@@ -0,0 +1,10 @@
+-- FILMS.LIKES_COUNT: счетчик лайков для рейтинга популярных фильмов без агрегации LIKES.
+-- В базе, созданной прежним schema.sql, лайки уже есть, поэтому счетчик заполняется по ним.
+ALTER TABLE FILMS ADD COLUMN IF NOT EXISTS LIKES_COUNT BIGINT NOT NULL DEFAULT 0;
+
+UPDATE FILMS AS f
+SET LIKES_COUNT = (
+    SELECT COUNT(*)
+    FROM LIKES AS l
+    WHERE l.FILMS_ID = f.FILMS_ID
+    );
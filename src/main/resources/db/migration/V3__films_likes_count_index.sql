@@ -0,0 +1,2 @@
+-- Рейтинг популярных фильмов читается по убыванию LIKES_COUNT.
+CREATE INDEX IF NOT EXISTS FILMS_LIKES_COUNT_INDEX ON FILMS (LIKES_COUNT DESC, FILMS_ID);
@@ -0,0 +1,2 @@
+-- Лайки фильма: первичный ключ LIKES начинается с USER_ID и поиск по FILMS_ID не покрывает.
+CREATE INDEX IF NOT EXISTS LIKES_FILMS_ID_INDEX ON LIKES (FILMS_ID, USER_ID);
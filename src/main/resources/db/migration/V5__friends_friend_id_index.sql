@@ -0,0 +1,2 @@
+-- Обратные связи дружбы: кто добавил пользователя в друзья.
+CREATE INDEX IF NOT EXISTS FRIENDS_FRIEND_ID_INDEX ON FRIENDS (FRIEND_ID, USER_ID);
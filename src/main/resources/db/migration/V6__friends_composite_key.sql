@@ -0,0 +1,40 @@
+-- FRIENDS: первичный ключ (USER_ID) позволял хранить только одного друга на пользователя.
+-- Таблица пересоздается с составным ключом (USER_ID, FRIEND_ID) и статусом дружбы:
+-- индекс старого ключа используется внешним ключом на USERS, и удалить его отдельно нельзя.
+-- Строки переносятся через копию без ограничений, поэтому миграция проходит и на базах,
+-- где прежний schema.sql уже создал таблицу с составным ключом. Дружба с самим собой отбрасывается.
+CREATE TABLE FRIENDS_COPY AS
+SELECT f.USER_ID,
+       f.FRIEND_ID,
+       CASE
+           WHEN EXISTS (
+               SELECT 1
+               FROM FRIENDS AS r
+               WHERE r.USER_ID = f.FRIEND_ID
+                   AND r.FRIEND_ID = f.USER_ID
+               ) THEN 'CONFIRMED'
+           ELSE 'PENDING'
+       END AS STATUS
+FROM FRIENDS AS f
+WHERE f.USER_ID <> f.FRIEND_ID;
+
+DROP TABLE FRIENDS;
+
+CREATE TABLE FRIENDS
+(
+    USER_ID   BIGINT      NOT NULL REFERENCES USERS (USER_ID) ON DELETE CASCADE,
+    FRIEND_ID BIGINT      NOT NULL REFERENCES USERS (USER_ID) ON DELETE CASCADE,
+    STATUS    VARCHAR(16) NOT NULL DEFAULT 'PENDING',
+    CONSTRAINT PK_FRIENDS PRIMARY KEY (USER_ID, FRIEND_ID),
+    CONSTRAINT FRIENDS_NOT_SELF CHECK (USER_ID <> FRIEND_ID),
+    CONSTRAINT FRIENDS_STATUS CHECK (STATUS IN ('PENDING', 'CONFIRMED'))
+);
+
+INSERT INTO FRIENDS (USER_ID, FRIEND_ID, STATUS)
+SELECT USER_ID, FRIEND_ID, STATUS
+FROM FRIENDS_COPY;
+
+DROP TABLE FRIENDS_COPY;
+
+-- Индекс из V5 удален вместе с прежней таблицей.
+CREATE INDEX IF NOT EXISTS FRIENDS_FRIEND_ID_INDEX ON FRIENDS (FRIEND_ID, USER_ID);
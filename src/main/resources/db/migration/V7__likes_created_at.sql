@@ -0,0 +1,8 @@
+-- LIKES.CREATED_AT: время лайка для списка трендовых фильмов за последний час, сутки и неделю.
+-- Время прежних лайков неизвестно: им ставится начало эпохи, чтобы после миграции они не попали
+-- в тренды как только что поставленные. Новым строкам по умолчанию ставится текущее время.
+ALTER TABLE LIKES ADD COLUMN IF NOT EXISTS CREATED_AT TIMESTAMP NOT NULL DEFAULT TIMESTAMP '1970-01-01 00:00:00';
+
+ALTER TABLE LIKES ALTER COLUMN CREATED_AT SET DEFAULT CURRENT_TIMESTAMP;
+
+CREATE INDEX IF NOT EXISTS LIKES_CREATED_AT_INDEX ON LIKES (CREATED_AT);
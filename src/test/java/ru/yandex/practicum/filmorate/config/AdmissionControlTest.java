@@ -0,0 +1,148 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import ru.yandex.practicum.filmorate.exceptions.ServiceOverloadedException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"filmorate.admission.max-concurrent=1", "filmorate.admission.max-wait=PT0.2S"})
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class AdmissionControlTest {
+    private final TestRestTemplate restTemplate;
+    private final MeterRegistry meterRegistry;
+    private final DataSource dataSource;
+    private final FilmStorage filmStorage;
+
+    @Test
+    void saturatedConnectionsRejectOnlyDatabaseRequests() throws Exception {
+        Film film = filmStorage.create(Film.builder()
+                .name("Film1")
+                .description("Desc1")
+                .releaseDate(LocalDate.now())
+                .duration(88)
+                .mpa(new Mpa(1, "G"))
+                .genres(Set.of(new Genre(1, "Комедия")))
+                .build());
+        String filmTag = restTemplate.getForEntity("/films/" + film.getId(), String.class).getHeaders().getETag();
+        String genresTag = restTemplate.getForEntity("/genres", String.class).getHeaders().getETag();
+
+        // Единственное соединение занято: запросы к БД ждут max-wait и получают 503
+        try (Connection ignored = dataSource.getConnection()) {
+            ResponseEntity<String> rejected = restTemplate.getForEntity("/films", String.class);
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.getStatusCode());
+            assertEquals("1", rejected.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+
+            assertEquals(HttpStatus.OK, restTemplate.getForEntity("/genres", String.class).getStatusCode());
+            assertEquals(HttpStatus.NOT_MODIFIED, getIfNoneMatch("/genres", genresTag).getStatusCode());
+            assertEquals(HttpStatus.NOT_MODIFIED,
+                    getIfNoneMatch("/films/" + film.getId(), filmTag).getStatusCode());
+        }
+        assertEquals(HttpStatus.OK, restTemplate.getForEntity("/films", String.class).getStatusCode());
+    }
+
+    @Test
+    void requestsBeyondQueueAreRejectedWithoutWaiting() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AdmissionControl admissionControl = new AdmissionControl(1, 1, Duration.ofSeconds(10), registry);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> held = executor.submit(() -> inRequest(() -> {
+                admissionControl.acquire();
+                entered.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                admissionControl.release();
+            }));
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            Future<?> queued = executor.submit(() -> inRequest(() -> {
+                admissionControl.acquire();
+                admissionControl.release();
+            }));
+            awaitGauge(registry, "filmorate.admission.queued", 1);
+
+            // Очередь заполнена: запрос отклоняется сразу, не дожидаясь max-wait
+            assertTimeoutPreemptively(Duration.ofSeconds(2), () -> inRequest(
+                    () -> assertThrows(ServiceOverloadedException.class, admissionControl::acquire)));
+
+            release.countDown();
+            held.get(5, TimeUnit.SECONDS);
+            queued.get(5, TimeUnit.SECONDS);
+            assertEquals(0, registry.get("filmorate.admission.queued").gauge().value());
+            assertEquals(0, registry.get("filmorate.admission.in-flight").gauge().value());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void streamedResponseReleasesPermitWhenComplete() throws Exception {
+        // Разрешение одно: если потоковый ответ его не вернет, следующий запрос получит 503
+        for (int i = 0; i < 5; i++) {
+            ResponseEntity<String> response = restTemplate.getForEntity("/films/stream", String.class);
+            assertEquals(HttpStatus.OK, response.getStatusCode());
+        }
+        awaitGauge(meterRegistry, "filmorate.admission.in-flight", 0);
+        assertEquals(HttpStatus.OK, restTemplate.getForEntity("/films", String.class).getStatusCode());
+    }
+
+    private ResponseEntity<String> getIfNoneMatch(String path, String etag) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(etag);
+        return restTemplate.exchange(path, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+    }
+
+    private static void inRequest(Runnable action) {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        try {
+            action.run();
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+
+    private static void awaitGauge(MeterRegistry registry, String name, double expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (registry.get(name).gauge().value() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, registry.get(name).gauge().value());
+    }
+}
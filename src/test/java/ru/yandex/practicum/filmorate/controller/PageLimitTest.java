@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class PageLimitTest {
+
+    private final MockMvc mockMvc;
+
+    @Test
+    void pageLimitIsBounded() throws Exception {
+        for (String path : new String[]{"/films", "/users"}) {
+            mockMvc.perform(get(path).param("limit", String.valueOf(FilmController.MAX_PAGE_SIZE)))
+                    .andExpect(status().isOk());
+            mockMvc.perform(get(path).param("limit", String.valueOf(FilmController.MAX_PAGE_SIZE + 1)))
+                    .andExpect(status().isBadRequest());
+            mockMvc.perform(get(path).param("limit", "0"))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    @Test
+    void trendingCountIsBounded() throws Exception {
+        mockMvc.perform(get("/films/trending").param("count", String.valueOf(FilmController.MAX_PAGE_SIZE)))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/films/trending").param("count", String.valueOf(FilmController.MAX_PAGE_SIZE + 1)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void searchPageIsBounded() throws Exception {
+        mockMvc.perform(get("/films/search").param("q", "фильм")
+                        .param("limit", String.valueOf(FilmController.MAX_PAGE_SIZE + 1)))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films/search").param("q", "фильм")
+                        .param("offset", String.valueOf(Integer.MAX_VALUE))
+                        .param("limit", String.valueOf(FilmController.MAX_PAGE_SIZE)))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.service.film;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Sql("/truncate.sql")
+class LikeWriteBehindTest {
+    private final FilmDbStorage filmDbStorage;
+    private final UserDbStorage userDbStorage;
+    private final JdbcTemplate jdbc;
+
+    @Test
+    void writeBehindCoalescesAndDrainsLikes() throws Exception {
+        Long filmId = filmDbStorage.create(getTestFilm()).getId();
+        Long user1Id = userDbStorage.create(getTestUser("user1")).getId();
+        Long user2Id = userDbStorage.create(getTestUser("user2")).getId();
+        Long user3Id = userDbStorage.create(getTestUser("user3")).getId();
+        filmDbStorage.addLike(filmId, user3Id);
+
+        LikeWriteBehind writeBehind = new LikeWriteBehind(filmDbStorage, 2, 100, Duration.ofHours(1), 3);
+        writeBehind.addLike(filmId, user1Id);
+        writeBehind.addLike(filmId, user2Id);
+        writeBehind.deleteLike(filmId, user2Id);
+        writeBehind.deleteLike(filmId, user3Id);
+        writeBehind.addLike(filmId + 100, user1Id);
+        assertTrue(writeBehind.getCallerRunsFlushes() > 0);
+        writeBehind.close();
+
+        assertEquals(0, writeBehind.getQueueDepth());
+        assertEquals(1L, jdbc.queryForObject("SELECT COUNT(*) FROM LIKES WHERE FILMS_ID = ?", Long.class, filmId));
+        assertEquals(1L, jdbc.queryForObject("SELECT LIKES_COUNT FROM FILMS WHERE FILMS_ID = ?", Long.class, filmId));
+    }
+
+    @Test
+    void writeBehindDropsOnlyFailingLikesAfterRetries() throws Exception {
+        Long filmId = filmDbStorage.create(getTestFilm()).getId();
+        Long user1Id = userDbStorage.create(getTestUser("user1")).getId();
+        Long user2Id = userDbStorage.create(getTestUser("user2")).getId();
+        // Любая пачка с лайком второго пользователя падает.
+        FilmStorage storage = mock(FilmStorage.class, delegatesTo(filmDbStorage));
+        doThrow(new DataAccessResourceFailureException("Ошибка записи")).when(storage).applyLikes(
+                argThat(operations -> operations.stream().anyMatch(operation -> user2Id.equals(operation.getUserId()))));
+
+        LikeWriteBehind writeBehind = new LikeWriteBehind(storage, 100, 100, Duration.ofHours(1), 2);
+        writeBehind.addLike(filmId, user1Id);
+        writeBehind.addLike(filmId, user2Id);
+        assertThrows(DataAccessResourceFailureException.class, writeBehind::flush);
+        assertEquals(2, writeBehind.getQueueDepth());
+        assertEquals(0, writeBehind.getFailedOperations());
+
+        writeBehind.flush();
+        assertEquals(0, writeBehind.getQueueDepth());
+        assertEquals(1, writeBehind.getFailedOperations());
+        assertEquals(List.of(user1Id), jdbc.queryForList("SELECT USER_ID FROM LIKES WHERE FILMS_ID = ?", Long.class, filmId));
+        writeBehind.close();
+    }
+
+    private Film getTestFilm() {
+        return Film.builder()
+                .name("Film1")
+                .description("Desc1")
+                .releaseDate(LocalDate.now())
+                .duration(88)
+                .mpa(new Mpa(1, "G"))
+                .genres(new HashSet<>())
+                .build();
+    }
+
+    private User getTestUser(String login) {
+        return User.builder()
+                .name(login)
+                .email(login + "@ya.ru")
+                .login(login)
+                .birthday(LocalDate.of(2000, 2, 20))
+                .build();
+    }
+}
@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// База, созданная выпущенным schema.sql (он же V1), без истории Flyway: при старте она получает
+// baseline V1 и все следующие миграции.
+class MigrationTest {
+
+    @Test
+    void releasedSchemaIsBaselinedAndMigrated() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:released-schema;DB_CLOSE_DELAY=-1", "sa", "password");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("RUNSCRIPT FROM 'classpath:/db/migration/V1__baseline.sql'");
+        jdbc.update("INSERT INTO USERS (EMAIL, LOGIN, NAME, BIRTHDAY) VALUES ('a@ya.ru', 'a', 'A', '2000-01-01')");
+        jdbc.update("INSERT INTO USERS (EMAIL, LOGIN, NAME, BIRTHDAY) VALUES ('b@ya.ru', 'b', 'B', '2000-01-01')");
+        jdbc.update("INSERT INTO FILMS (NAME, DESCRIPTION, RELEASE_DATE, DURATION, RATING_ID) "
+                + "VALUES ('Film', 'Desc', '2000-01-01', 90, 1)");
+        jdbc.update("INSERT INTO LIKES (USER_ID, FILMS_ID) VALUES (1, 1), (2, 1)");
+        jdbc.update("INSERT INTO FRIENDS (USER_ID, FRIEND_ID) VALUES (1, 2), (2, 1)");
+
+        Flyway flyway = Flyway.configure()
+                .dataSource(dataSource)
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load();
+        assertEquals(6, flyway.migrate().migrationsExecuted);
+
+        assertEquals(2L, jdbc.queryForObject("SELECT LIKES_COUNT FROM FILMS WHERE FILMS_ID = 1", Long.class));
+        assertEquals(List.of("CONFIRMED", "CONFIRMED"), jdbc.queryForList("SELECT STATUS FROM FRIENDS", String.class));
+        assertEquals(0, jdbc.queryForObject(
+                "SELECT COUNT(*) FROM LIKES WHERE CREATED_AT > TIMESTAMP '1970-01-01 00:00:00'", Integer.class));
+        assertEquals(List.of("FILMS_LIKES_COUNT_INDEX", "FRIENDS_FRIEND_ID_INDEX", "LIKES_CREATED_AT_INDEX",
+                "LIKES_FILMS_ID_INDEX"), jdbc.queryForList("""
+                SELECT INDEX_NAME
+                FROM INFORMATION_SCHEMA.INDEXES
+                WHERE INDEX_NAME IN ('FILMS_LIKES_COUNT_INDEX', 'FRIENDS_FRIEND_ID_INDEX',
+                    'LIKES_CREATED_AT_INDEX', 'LIKES_FILMS_ID_INDEX')
+                ORDER BY INDEX_NAME
+                """, String.class));
+    }
+}
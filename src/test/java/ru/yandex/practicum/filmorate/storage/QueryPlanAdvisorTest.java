@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class QueryPlanAdvisorTest {
+    private final QueryPlanAdvisor queryPlanAdvisor;
+
+    @Test
+    void everyQueryIsBackedByIndex() {
+        List<QueryPlanAdvisor.QueryPlan> plans = queryPlanAdvisor.explainAll();
+        assertTrue(plans.size() > 20);
+        assertEquals(List.of(), queryPlanAdvisor.findUnexpectedScans().stream()
+                .map(plan -> plan.owner().getSimpleName() + "." + plan.name() + " " + plan.scannedTables())
+                .toList());
+    }
+}
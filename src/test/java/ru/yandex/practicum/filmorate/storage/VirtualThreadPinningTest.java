@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.jdbc.Sql;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Sql("/truncate.sql")
+class VirtualThreadPinningTest {
+    private final FilmDbStorage filmDbStorage;
+    private final UserDbStorage userDbStorage;
+
+    @Test
+    void storageCallsDoNotPinVirtualThreads() throws Exception {
+        Long filmId = filmDbStorage.create(getTestFilm()).getId();
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            userIds.add(userDbStorage.create(getTestUser("user" + i)).getId());
+        }
+
+        Path dump = Files.createTempFile("pinned", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.start();
+            // Соединений в пуле меньше, чем потоков, поэтому виртуальные потоки паркуются внутри JDBC-вызовов.
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<Future<?>> futures = new ArrayList<>();
+                for (Long userId : userIds) {
+                    futures.add(executor.submit(() -> {
+                        filmDbStorage.addLike(filmId, userId);
+                        filmDbStorage.findById(filmId);
+                        filmDbStorage.getPopular(10L);
+                        userDbStorage.findAllFriends(userId);
+                        filmDbStorage.deleteLike(filmId, userId);
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            }
+            recording.stop();
+            recording.dump(dump);
+        }
+        List<RecordedEvent> pinned = RecordingFile.readAllEvents(dump).stream()
+                .filter(event -> event.getEventType().getName().equals("jdk.VirtualThreadPinned"))
+                .toList();
+        Files.deleteIfExists(dump);
+        assertTrue(pinned.isEmpty(), () -> "Виртуальный поток закреплен за несущим:\n" + pinned.getFirst());
+    }
+
+    private Film getTestFilm() {
+        return Film.builder()
+                .name("Film1")
+                .description("Desc1")
+                .releaseDate(LocalDate.now())
+                .duration(88)
+                .mpa(new Mpa(1, "G"))
+                .genres(Set.of(new Genre(1, "Комедия")))
+                .build();
+    }
+
+    private User getTestUser(String login) {
+        return User.builder()
+                .name(login)
+                .email(login + "@ya.ru")
+                .login(login)
+                .birthday(LocalDate.of(2000, 2, 20))
+                .build();
+    }
+}
@@ -5,23 +5,45 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
-import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.model.Genre;
-import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.*;
+import ru.yandex.practicum.filmorate.service.film.FilmService;
+import ru.yandex.practicum.filmorate.service.user.UserService;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
 
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
 @AutoConfigureTestDatabase
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
-@Sql({"/schema.sql", "/data.sql"})
+@Sql("/truncate.sql")
 public class FilmDbStorageTest {
     private final FilmDbStorage filmDbStorage;
+    private final UserDbStorage userDbStorage;
+    private final LikesCountReconciler likesCountReconciler;
+    private final FilmService filmService;
+    private final JdbcTemplate jdbc;
+    private final FilmSearchIndex filmSearchIndex;
+    private final LikesGraph likesGraph;
+    private final TrendingFilmsIndex trendingFilmsIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final UserService userService;
 
     @Test
     public void testDeleteFilm() {
@@ -125,5 +147,424 @@ public class FilmDbStorageTest {
         assertNotNull(responseEntity);
     }
 
+    @Test
+    void updateKeepsFilmAndReplacesGenres() {
+        Long filmId = filmDbStorage.create(getTestFilm(1)).getId();
+        Film newFilm = getTestFilm(3);
+        newFilm.setId(filmId);
+        filmDbStorage.update(newFilm);
+
+        Film updated = filmDbStorage.findById(filmId);
+        assertEquals("Film3", updated.getName());
+        assertEquals(Set.of(new Genre(4, "Триллер")), updated.getGenres());
+    }
+
+    @Test
+    void missingFilmOrUserIsNotFound() {
+        Long filmId = filmDbStorage.create(getTestFilm(1)).getId();
+        Long userId = userDbStorage.create(getTestUser("user1")).getId();
+        assertThrows(NotFoundException.class, () -> filmDbStorage.addLike(filmId + 100, userId));
+        assertThrows(NotFoundException.class, () -> filmDbStorage.addLike(filmId, userId + 100));
+        assertThrows(NotFoundException.class, () -> filmDbStorage.deleteLike(filmId + 100, userId));
+        assertThrows(NotFoundException.class, () -> filmDbStorage.delete(filmId + 100));
+        Film film = getTestFilm(2);
+        film.setId(filmId + 100);
+        assertThrows(NotFoundException.class, () -> filmDbStorage.update(film));
+        assertFalse(filmDbStorage.isFilmExists(filmId + 100));
+        assertTrue(filmDbStorage.isFilmExists(filmId));
+    }
+
+    @Test
+    void applyLikesInBatch() {
+        Long film1Id = filmDbStorage.create(getTestFilm(1)).getId();
+        Long film2Id = filmDbStorage.create(getTestFilm(2)).getId();
+        Long user1Id = userDbStorage.create(getTestUser("user1")).getId();
+        Long user2Id = userDbStorage.create(getTestUser("user2")).getId();
+        filmDbStorage.addLike(film1Id, user1Id);
+
+        List<BatchItemResult> results = filmDbStorage.applyLikes(List.of(
+                new LikeOperation(film2Id, user1Id, BatchAction.ADD),
+                new LikeOperation(film2Id, user2Id, BatchAction.ADD),
+                new LikeOperation(film2Id, user2Id, BatchAction.ADD),
+                new LikeOperation(film1Id, user1Id, BatchAction.REMOVE),
+                new LikeOperation(film1Id, user2Id, BatchAction.REMOVE),
+                new LikeOperation(film2Id + 100, user1Id, BatchAction.ADD),
+                new LikeOperation(null, user1Id, BatchAction.ADD)));
+        assertEquals(List.of(BatchItemStatus.OK, BatchItemStatus.OK, BatchItemStatus.UNCHANGED,
+                        BatchItemStatus.OK, BatchItemStatus.UNCHANGED, BatchItemStatus.NOT_FOUND,
+                        BatchItemStatus.INVALID),
+                results.stream().map(BatchItemResult::getStatus).toList());
+
+        assertEquals(2L, jdbc.queryForObject("SELECT LIKES_COUNT FROM FILMS WHERE FILMS_ID = ?", Long.class, film2Id));
+        assertEquals(0L, jdbc.queryForObject("SELECT LIKES_COUNT FROM FILMS WHERE FILMS_ID = ?", Long.class, film1Id));
+        List<Film> popular = new ArrayList<>(filmDbStorage.getPopular(2L));
+        assertEquals(List.of(film2Id, film1Id), popular.stream().map(Film::getId).toList());
+    }
+
+    @Test
+    void addLikeAndGetReportsNotFound() {
+        Long filmId = filmDbStorage.create(getTestFilm(1)).getId();
+        Long userId = userDbStorage.create(getTestUser("user1")).getId();
+        assertEquals(filmId, filmService.addLikeAndGet(filmId, userId).getId());
+        assertEquals(1L, jdbc.queryForObject("SELECT LIKES_COUNT FROM FILMS WHERE FILMS_ID = ?", Long.class, filmId));
+        assertThrows(NotFoundException.class, () -> filmService.addLikeAndGet(filmId, userId + 100));
+        assertThrows(NotFoundException.class, () -> filmService.deleteLikeAndGet(filmId + 100, userId));
+    }
+
+    @Test
+    void createWithUnknownGenreOrMpa() {
+        Film film = getTestFilm(1);
+        film.setGenres(Set.of(new Genre(1, "Комедия"), new Genre(100, null)));
+        assertThrows(ValidationException.class, () -> filmDbStorage.create(film));
+
+        Film film2 = getTestFilm(2);
+        film2.setMpa(new Mpa(100));
+        assertThrows(ValidationException.class, () -> filmDbStorage.create(film2));
+        assertTrue(filmDbStorage.findAll().isEmpty());
+    }
+
+    @Test
+    void findPageAndStreamAll() {
+        Long film1Id = filmDbStorage.create(getTestFilm(1)).getId();
+        Long film2Id = filmDbStorage.create(getTestFilm(2)).getId();
+        Long film3Id = filmDbStorage.create(getTestFilm(3)).getId();
+
+        List<Film> firstPage = new ArrayList<>(filmDbStorage.findPage(0, 2));
+        assertEquals(List.of(film1Id, film2Id), firstPage.stream().map(Film::getId).toList());
+        assertEquals(2, firstPage.get(0).getGenres().size());
+        List<Film> secondPage = new ArrayList<>(filmDbStorage.findPage(film2Id, 2));
+        assertEquals(List.of(film3Id), secondPage.stream().map(Film::getId).toList());
+        assertTrue(filmDbStorage.findPage(film3Id, 2).isEmpty());
+
+        List<Film> streamed = new ArrayList<>();
+        filmDbStorage.streamAll(streamed::add);
+        assertEquals(List.of(film1Id, film2Id, film3Id), streamed.stream().map(Film::getId).toList());
+        assertEquals(2, streamed.get(0).getGenres().size());
+        assertEquals(1, streamed.get(2).getGenres().size());
+    }
+
+    @Test
+    void loadedFilmsShareMpaAndGenres() {
+        Film film1 = getTestFilm(1);
+        Film film2 = getTestFilm(1);
+        film2.setGenres(Set.of(new Genre(2, "Драма")));
+        Long film1Id = filmDbStorage.create(film1).getId();
+        Long film2Id = filmDbStorage.create(film2).getId();
+
+        Film loaded1 = filmDbStorage.findById(film1Id);
+        Film loaded2 = filmDbStorage.findById(film2Id);
+        assertSame(loaded1.getMpa(), loaded2.getMpa());
+        assertEquals(List.of(new Genre(1, "Комедия"), new Genre(2, "Драма")), List.copyOf(loaded1.getGenres()));
+        assertSame(List.copyOf(loaded1.getGenres()).get(1), loaded2.getGenres().iterator().next());
+        assertTrue(loaded2.getGenres().contains(new Genre(2, "Драма")));
+        assertFalse(loaded2.getGenres().contains(new Genre(1, "Комедия")));
+    }
+
+    @Test
+    void getPopular() {
+        Long film1Id = filmDbStorage.create(getTestFilm(1)).getId();
+        Long film2Id = filmDbStorage.create(getTestFilm(2)).getId();
+        Long film3Id = filmDbStorage.create(getTestFilm(3)).getId();
+        Long user1Id = userDbStorage.create(getTestUser("user1")).getId();
+        Long user2Id = userDbStorage.create(getTestUser("user2")).getId();
+        filmDbStorage.addLike(film2Id, user1Id);
+        filmDbStorage.addLike(film2Id, user2Id);
+        filmDbStorage.addLike(film3Id, user1Id);
+        filmDbStorage.addLike(film1Id, user2Id);
+        filmDbStorage.deleteLike(film1Id, user2Id);
 
-}
\ No newline at end of file
+        List<Film> popular = new ArrayList<>(filmDbStorage.getPopular(2L));
+        assertEquals(2, popular.size());
+        assertEquals(film2Id, popular.get(0).getId());
+        assertEquals(film3Id, popular.get(1).getId());
+        assertEquals(1, popular.get(1).getGenres().size());
+        assertEquals(3, filmDbStorage.getPopular(10L).size());
+    }
+
+    @Test
+    void likesCountStaysExactUnderConcurrentLikes() throws Exception {
+        Long filmId = filmDbStorage.create(getTestFilm(1)).getId();
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            userIds.add(userDbStorage.create(getTestUser("user" + i)).getId());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Long userId : userIds) {
+                futures.add(executor.submit(() -> filmDbStorage.addLike(filmId, userId)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            futures.clear();
+            for (Long userId : userIds.subList(0, 30)) {
+                futures.add(executor.submit(() -> filmDbStorage.deleteLike(filmId, userId)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(70, getLikesCount(filmId));
+        assertEquals(70, jdbc.queryForObject("SELECT COUNT(*) FROM LIKES WHERE FILMS_ID = ?", Long.class, filmId));
+        assertEquals(0, likesCountReconciler.reconcile());
+    }
+
+    @Test
+    void concurrentBatchesWithSameLikesDoNotFail() throws Exception {
+        Long filmId = filmDbStorage.create(getTestFilm(1)).getId();
+        List<LikeOperation> likes = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Long userId = userDbStorage.create(getTestUser("user" + i)).getId();
+            likes.add(new LikeOperation(filmId, userId, BatchAction.ADD));
+        }
+
+        // Один и тот же пакет отправлен повторно несколькими клиентами одновременно.
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<BatchItemResult> results = new ArrayList<>();
+        try {
+            List<Future<List<BatchItemResult>>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> filmDbStorage.applyLikes(likes)));
+            }
+            for (Future<List<BatchItemResult>> future : futures) {
+                results.addAll(future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(50, results.stream().filter(result -> result.getStatus() == BatchItemStatus.OK).count());
+        assertEquals(7 * 50, results.stream().filter(result -> result.getStatus() == BatchItemStatus.UNCHANGED).count());
+        assertEquals(50, getLikesCount(filmId));
+        assertEquals(0, likesCountReconciler.reconcile());
+    }
+
+    @Test
+    void reconcileRepairsLikesCountDrift() {
+        Long film1Id = filmDbStorage.create(getTestFilm(1)).getId();
+        Long film2Id = filmDbStorage.create(getTestFilm(2)).getId();
+        Long userId = userDbStorage.create(getTestUser("user1")).getId();
+        filmDbStorage.addLike(film1Id, userId);
+        jdbc.update("UPDATE FILMS SET LIKES_COUNT = 5 WHERE FILMS_ID = ?", film2Id);
+
+        assertEquals(1, likesCountReconciler.reconcile());
+        assertEquals(0, getLikesCount(film2Id));
+        assertEquals(film1Id, filmDbStorage.getPopular(1L).iterator().next().getId());
+
+        // Лайк удален в обход хранилища: счетчик и рейтинг уменьшаются на разницу, остальные фильмы не трогаются.
+        Long film3Id = filmDbStorage.create(getTestFilm(3)).getId();
+        filmDbStorage.addLike(film2Id, userId);
+        jdbc.update("DELETE FROM LIKES WHERE FILMS_ID = ?", film1Id);
+        assertEquals(1, likesCountReconciler.reconcile());
+        assertEquals(0, getLikesCount(film1Id));
+        assertEquals(List.of(film2Id, film1Id, film3Id),
+                filmDbStorage.getPopular(10L).stream().map(Film::getId).toList());
+        assertEquals(0, likesCountReconciler.reconcile());
+    }
+
+    @Test
+    void searchRanksByRelevanceAndLikes() {
+        filmSearchIndex.load();
+        Film hedgehog = getTestFilm(1);
+        hedgehog.setName("Ёжик в тумане");
+        hedgehog.setDescription("Мультфильм про ежика и медвежонка");
+        Long hedgehogId = filmDbStorage.create(hedgehog).getId();
+        Film sonic = getTestFilm(2);
+        sonic.setName("Sonic");
+        sonic.setDescription("Синий ёж бегает быстро, ёж спасает друзей");
+        Long sonicId = filmDbStorage.create(sonic).getId();
+        Film fog = getTestFilm(3);
+        fog.setName("Туман");
+        fog.setDescription("Ужасы в тумане");
+        Long fogId = filmDbStorage.create(fog).getId();
+        Long userId = userDbStorage.create(getTestUser("user1")).getId();
+
+        // Совпадение в названии весит больше, чем в описании; последнее слово ищется по префиксу.
+        assertEquals(List.of(hedgehogId, sonicId), searchIds("ЕЖ", List.of("title", "description"), 0, 10));
+        assertEquals(List.of(hedgehogId), searchIds("ежик тум", List.of("title"), 0, 10));
+        assertEquals(List.of(sonicId), searchIds("ёж быстр", List.of("description"), 0, 10));
+
+        assertEquals(List.of(fogId, hedgehogId), searchIds("туман", List.of("title", "description"), 0, 10));
+        filmDbStorage.addLike(hedgehogId, userId);
+        assertEquals(List.of(fogId), searchIds("туман", List.of("title", "description"), 0, 1));
+        assertEquals(List.of(hedgehogId), searchIds("туман", List.of("title", "description"), 1, 1));
+
+        fog.setName("Дождь");
+        filmDbStorage.update(fog);
+        assertEquals(List.of(hedgehogId, fogId), searchIds("туман", List.of("title", "description"), 0, 10));
+        filmDbStorage.deleteLike(hedgehogId, userId);
+        filmDbStorage.delete(hedgehogId);
+        assertEquals(List.of(fogId), searchIds("туман", List.of("title", "description"), 0, 10));
+        assertThrows(ValidationException.class, () -> filmService.search("туман", List.of("genre"), 0, 10));
+    }
+
+    @Test
+    void recommendationsFollowLikeChanges() {
+        likesGraph.load();
+        Long film1Id = filmDbStorage.create(getTestFilm(1)).getId();
+        Long film2Id = filmDbStorage.create(getTestFilm(2)).getId();
+        Long film3Id = filmDbStorage.create(getTestFilm(3)).getId();
+        Long film4Id = filmDbStorage.create(getTestFilm(1)).getId();
+        Long user1Id = userDbStorage.create(getTestUser("user1")).getId();
+        Long user2Id = userDbStorage.create(getTestUser("user2")).getId();
+        Long user3Id = userDbStorage.create(getTestUser("user3")).getId();
+        filmDbStorage.addLike(film1Id, user1Id);
+        filmDbStorage.addLike(film2Id, user1Id);
+        filmDbStorage.addLike(film1Id, user2Id);
+        filmDbStorage.addLike(film2Id, user2Id);
+        filmDbStorage.addLike(film3Id, user2Id);
+        filmDbStorage.addLike(film4Id, user3Id);
+
+        assertEquals(List.of(film3Id), recommendedIds(user1Id));
+        filmDbStorage.applyLikes(List.of(new LikeOperation(film1Id, user3Id, BatchAction.ADD)));
+        assertEquals(List.of(film3Id, film4Id), recommendedIds(user1Id));
+        filmDbStorage.deleteLike(film3Id, user2Id);
+        assertEquals(List.of(film4Id), recommendedIds(user1Id));
+        assertEquals(List.of(), recommendedIds(userDbStorage.create(getTestUser("user4")).getId()));
+        assertThrows(NotFoundException.class, () -> userService.getRecommendations(user3Id + 100, 10));
+    }
+
+    @Test
+    void trendingFollowsLikesWithinWindow() {
+        trendingFilmsIndex.load();
+        Long film1Id = filmDbStorage.create(getTestFilm(1)).getId();
+        Long film2Id = filmDbStorage.create(getTestFilm(2)).getId();
+        Long user1Id = userDbStorage.create(getTestUser("user1")).getId();
+        Long user2Id = userDbStorage.create(getTestUser("user2")).getId();
+        filmDbStorage.addLike(film2Id, user1Id);
+        filmDbStorage.applyLikes(List.of(
+                new LikeOperation(film2Id, user2Id, BatchAction.ADD),
+                new LikeOperation(film1Id, user1Id, BatchAction.ADD)));
+        // Лайк недельной давности не попадает даже в недельное окно.
+        jdbc.update("INSERT INTO LIKES (FILMS_ID, USER_ID, CREATED_AT) VALUES (?, ?, ?)",
+                film1Id, user2Id, Timestamp.from(Instant.now().minus(Duration.ofDays(8))));
+        trendingFilmsIndex.load();
+
+        assertEquals(List.of(film2Id, film1Id), filmDbStorage.getTrending(TrendingFilmsIndex.Window.HOUR, 10)
+                .stream().map(Film::getId).toList());
+        filmDbStorage.deleteLike(film2Id, user1Id);
+        filmDbStorage.applyLikes(List.of(new LikeOperation(film2Id, user2Id, BatchAction.REMOVE)));
+        assertEquals(List.of(film1Id), filmDbStorage.getTrending(TrendingFilmsIndex.Window.WEEK, 10)
+                .stream().map(Film::getId).toList());
+        assertThrows(ValidationException.class, () -> filmService.getTrending("2h", 10));
+
+        Instant[] now = {Instant.parse("2024-01-01T12:00:00Z")};
+        TrendingFilmsIndex index = new TrendingFilmsIndex(jdbc, new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return now[0];
+            }
+        });
+        index.addLike(1, now[0].minus(Duration.ofMinutes(30)));
+        index.addLike(2, now[0].minus(Duration.ofHours(3)));
+        index.addLike(2, now[0].minus(Duration.ofHours(5)));
+        assertEquals(List.of(1L), index.top(TrendingFilmsIndex.Window.HOUR, 10));
+        assertEquals(List.of(2L, 1L), index.top(TrendingFilmsIndex.Window.DAY, 10));
+        now[0] = now[0].plus(Duration.ofHours(1));
+        assertEquals(List.of(), index.top(TrendingFilmsIndex.Window.HOUR, 10));
+        now[0] = now[0].plus(Duration.ofDays(1));
+        assertEquals(List.of(), index.top(TrendingFilmsIndex.Window.DAY, 10));
+        assertEquals(List.of(2L, 1L), index.top(TrendingFilmsIndex.Window.WEEK, 2));
+        index.removeLike(2, now[0].minus(Duration.ofHours(28)));
+        assertEquals(List.of(1L, 2L), index.top(TrendingFilmsIndex.Window.WEEK, 10));
+    }
+
+    @Test
+    void rolledBackLikesDoNotReachIndexes() {
+        trendingFilmsIndex.load();
+        likesGraph.load();
+        Long film1Id = filmDbStorage.create(getTestFilm(1)).getId();
+        Long film2Id = filmDbStorage.create(getTestFilm(2)).getId();
+        Long user1Id = userDbStorage.create(getTestUser("user1")).getId();
+        Long user2Id = userDbStorage.create(getTestUser("user2")).getId();
+        transactionTemplate.executeWithoutResult(status -> {
+            filmDbStorage.addLike(film2Id, user1Id);
+            filmDbStorage.applyLikes(List.of(new LikeOperation(film2Id, user2Id, BatchAction.ADD)));
+            status.setRollbackOnly();
+        });
+        assertEquals(List.of(), trendingFilmsIndex.top(TrendingFilmsIndex.Window.HOUR, 10));
+        assertEquals(0, likesGraph.filmsOf(user1Id).length + likesGraph.filmsOf(user2Id).length);
+        assertEquals(List.of(film1Id, film2Id), filmDbStorage.getPopular(10L).stream().map(Film::getId).toList());
+
+        filmDbStorage.addLike(film2Id, user1Id);
+        transactionTemplate.executeWithoutResult(status -> {
+            filmDbStorage.deleteLike(film2Id, user1Id);
+            filmDbStorage.applyLikes(List.of(new LikeOperation(film2Id, user1Id, BatchAction.REMOVE)));
+            status.setRollbackOnly();
+        });
+        assertEquals(List.of(film2Id), trendingFilmsIndex.top(TrendingFilmsIndex.Window.HOUR, 10));
+        assertArrayEquals(new long[]{film2Id}, likesGraph.filmsOf(user1Id));
+        assertEquals(List.of(film2Id, film1Id), filmDbStorage.getPopular(10L).stream().map(Film::getId).toList());
+    }
+
+    @Test
+    void etagsChangeOnlyWithFilmOrRanking() {
+        Long film1Id = filmDbStorage.create(getTestFilm(1)).getId();
+        Long film2Id = filmDbStorage.create(getTestFilm(2)).getId();
+        Long userId = userDbStorage.create(getTestUser("user1")).getId();
+        String film1Tag = filmDbStorage.getETag(film1Id);
+        String film2Tag = filmDbStorage.getETag(film2Id);
+        String popularTag = filmDbStorage.getPopularETag();
+        String userTag = userDbStorage.getETag(userId);
+
+        filmDbStorage.findById(film1Id);
+        filmDbStorage.getPopular(10L);
+        assertEquals(film1Tag, filmDbStorage.getETag(film1Id));
+        assertEquals(popularTag, filmDbStorage.getPopularETag());
+
+        filmDbStorage.addLike(film1Id, userId);
+        assertNotEquals(film1Tag, filmDbStorage.getETag(film1Id));
+        assertEquals(film2Tag, filmDbStorage.getETag(film2Id));
+        assertNotEquals(popularTag, filmDbStorage.getPopularETag());
+        assertEquals(userTag, userDbStorage.getETag(userId));
+
+        Film newFilm = getTestFilm(3);
+        newFilm.setId(film2Id);
+        filmDbStorage.update(newFilm);
+        assertNotEquals(film2Tag, filmDbStorage.getETag(film2Id));
+        userDbStorage.update(getTestUser("user1").toBuilder().id(userId).name("Новое имя").build());
+        assertNotEquals(userTag, userDbStorage.getETag(userId));
+
+        // Для несуществующего id ETag нет: иначе If-None-Match с версией 0 дал бы 304 вместо 404
+        assertThrows(NotFoundException.class, () -> filmDbStorage.getETag(film2Id + 100));
+        assertThrows(NotFoundException.class, () -> userDbStorage.getETag(userId + 100));
+        filmDbStorage.delete(film2Id);
+        assertThrows(NotFoundException.class, () -> filmDbStorage.getETag(film2Id));
+    }
+
+    private List<Long> recommendedIds(Long userId) {
+        return userService.getRecommendations(userId, 10).stream().map(Film::getId).toList();
+    }
+
+    private List<Long> searchIds(String query, List<String> by, int offset, int limit) {
+        return filmService.search(query, by, offset, limit).stream().map(Film::getId).toList();
+    }
+
+    private long getLikesCount(Long filmId) {
+        return jdbc.queryForObject("SELECT LIKES_COUNT FROM FILMS WHERE FILMS_ID = ?", Long.class, filmId);
+    }
+
+    private User getTestUser(String login) {
+        return User.builder()
+                .name(login)
+                .email(login + "@ya.ru")
+                .login(login)
+                .birthday(LocalDate.of(2000, 2, 20))
+                .build();
+    }
+}
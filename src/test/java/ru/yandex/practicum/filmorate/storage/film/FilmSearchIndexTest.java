@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FilmSearchIndexTest {
+
+    private static final Set<FilmSearchIndex.Field> FIELDS = EnumSet.allOf(FilmSearchIndex.Field.class);
+    private static final int FILMS = 2000;
+
+    private final PopularFilmsIndex popularFilmsIndex = new PopularFilmsIndex(null);
+    private final FilmSearchIndex filmSearchIndex = new FilmSearchIndex(null, popularFilmsIndex);
+
+    @BeforeEach
+    void fill() {
+        for (long id = 1; id <= FILMS; id++) {
+            popularFilmsIndex.put(id, 0);
+            filmSearchIndex.put(id, "Фильм " + id, id % 2 == 0 ? "Описание фильма " + id : "Описание " + id);
+        }
+        popularFilmsIndex.put(1500, 3);
+        popularFilmsIndex.put(7, 2);
+    }
+
+    @Test
+    void stopWordsAreRankedByLikes() {
+        assertEquals(List.of(1500L, 7L, 1L), filmSearchIndex.search("фильм", FIELDS, 0, 3));
+        assertEquals(List.of(1L, 2L), filmSearchIndex.search("фильм", FIELDS, 2, 2));
+        assertEquals(List.of(), filmSearchIndex.search("фильм", FIELDS, Integer.MAX_VALUE, 10));
+    }
+
+    @Test
+    void stopWordsFilterRelevanceResults() {
+        // "1500" встречается в двух полях фильма 1500, "фильма" — только в описаниях четных фильмов
+        assertEquals(List.of(1500L), filmSearchIndex.search("фильма 1500", FIELDS, 0, 10));
+        assertEquals(List.of(), filmSearchIndex.search("фильма 7 описание", FIELDS, 0, 10));
+        assertEquals(List.of(7L), filmSearchIndex.search("фильм 7 описание", FIELDS, 0, 10));
+    }
+}
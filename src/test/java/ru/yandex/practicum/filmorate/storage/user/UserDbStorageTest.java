@@ -1,24 +1,45 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.AllArgsConstructor;
 import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exceptions.DuplicatedDataException;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchAction;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.BatchItemStatus;
+import ru.yandex.practicum.filmorate.model.FriendshipOperation;
 import ru.yandex.practicum.filmorate.model.User;
-import ru.yandex.practicum.filmorate.storage.film.FilmGenreDBStorage;
 import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.film.LikesGraph;
+import ru.yandex.practicum.filmorate.storage.film.PopularFilmsIndex;
+import ru.yandex.practicum.filmorate.storage.film.TrendingFilmsIndex;
 import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
 import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -28,11 +49,23 @@ import static org.junit.jupiter.api.Assertions.*;
 @ContextConfiguration(classes = {FilmDbStorage.class,
         GenreDbStorage.class,
         UserDbStorage.class,
+        FriendshipGraph.class,
         MpaDbStorage.class,
-        FilmGenreDBStorage.class})
+        PopularFilmsIndex.class,
+        FilmSearchIndex.class,
+        LikesGraph.class,
+        TrendingFilmsIndex.class})
 @ComponentScan(basePackages = {"ru.yandex.practicum.filmorate.storage.mapper"})
 class UserDbStorageTest {
     private final UserDbStorage userDbStorage;
+    private final FriendshipGraph friendshipGraph;
+    private final JdbcTemplate jdbc;
+
+    // Очистка после тестов вне транзакции начинает id заново, граф от прежних тестов не нужен.
+    @BeforeEach
+    void loadGraph() {
+        friendshipGraph.load();
+    }
 
     @AllArgsConstructor
     static class ExpectedViolation {
@@ -90,6 +123,22 @@ class UserDbStorageTest {
         assertEquals(2, responseEntity.size());
     }
 
+    @Test
+    void findPageAndStreamAll() {
+        Long user1Id = userDbStorage.create(getTestUser(1)).getId();
+        Long user2Id = userDbStorage.create(getTestUser(2)).getId();
+        Long user3Id = userDbStorage.create(getTestUser(3)).getId();
+
+        List<User> firstPage = new ArrayList<>(userDbStorage.findPage(0, 2));
+        assertEquals(List.of(user1Id, user2Id), firstPage.stream().map(User::getId).toList());
+        List<User> secondPage = new ArrayList<>(userDbStorage.findPage(user2Id, 2));
+        assertEquals(List.of(user3Id), secondPage.stream().map(User::getId).toList());
+
+        List<User> streamed = new ArrayList<>();
+        userDbStorage.streamAll(streamed::add);
+        assertEquals(List.of(user1Id, user2Id, user3Id), streamed.stream().map(User::getId).toList());
+    }
+
     @Test
     void create() {
         User user = getTestUser(1);
@@ -122,6 +171,151 @@ class UserDbStorageTest {
         assertEquals(newUser.getBirthday(), responseEntity.iterator().next().getBirthday());
     }
 
+    @Test
+    void updateWithOwnEmailAndDuplicatedEmail() {
+        User user = getTestUser(1);
+        Long userId = userDbStorage.create(user).getId();
+        userDbStorage.create(getTestUser(2));
+        user.setName("Renamed");
+        userDbStorage.update(user);
+        assertEquals("Renamed", userDbStorage.findById(userId).getName());
+
+        user.setEmail(getTestUser(2).getEmail());
+        assertThrows(DuplicatedDataException.class, () -> userDbStorage.update(user));
+        assertThrows(DuplicatedDataException.class, () -> userDbStorage.create(getTestUser(2)));
+    }
+
+    @Test
+    void missingUserIsNotFound() {
+        Long userId = userDbStorage.create(getTestUser(1)).getId();
+        assertThrows(NotFoundException.class, () -> userDbStorage.findById(userId + 100));
+        assertThrows(NotFoundException.class, () -> userDbStorage.findAllFriends(userId + 100));
+        assertThrows(NotFoundException.class, () -> userDbStorage.addToFriends(userId, userId + 100));
+        assertThrows(NotFoundException.class, () -> userDbStorage.findCommonFriends(userId, userId + 100));
+        assertTrue(userDbStorage.findAllFriends(userId).isEmpty());
+    }
+
+    @Test
+    void friendsAreServedFromGraphAfterUserDeletion() {
+        Long user1Id = userDbStorage.create(getTestUser(1)).getId();
+        Long user2Id = userDbStorage.create(getTestUser(2)).getId();
+        Long user3Id = userDbStorage.create(getTestUser(3)).getId();
+        userDbStorage.addToFriends(user1Id, user3Id);
+        userDbStorage.addToFriends(user2Id, user3Id);
+        assertEquals(List.of(user3Id),
+                userDbStorage.findCommonFriends(user1Id, user2Id).stream().map(User::getId).toList());
+
+        userDbStorage.delete(user3Id);
+        assertTrue(userDbStorage.findCommonFriends(user1Id, user2Id).isEmpty());
+        assertTrue(userDbStorage.findAllFriends(user1Id).isEmpty());
+    }
+
+    @Test
+    void queriesAreTimedByConstantName() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        userDbStorage.setMeterRegistry(registry);
+        try {
+            Long userId = userDbStorage.create(getTestUser(1)).getId();
+            userDbStorage.findById(userId);
+            userDbStorage.findById(userId);
+            assertEquals(2, registry.get("filmorate.db.query").tag("query", "USERS_FIND_BY_ID_QUERY").timer().count());
+            assertEquals(1, registry.get("filmorate.db.query").tag("query", "USERS_INSERT_QUERY").timer().count());
+            assertEquals(2.0, registry.get("filmorate.db.rows").tag("query", "USERS_FIND_BY_ID_QUERY")
+                    .summary().totalAmount());
+        } finally {
+            userDbStorage.setMeterRegistry(Metrics.globalRegistry);
+        }
+    }
+
+    // Граф друзей меняется только после фиксации пакета, поэтому тест идет вне транзакции теста.
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Sql(scripts = "/truncate.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void applyFriendshipsInBatch() {
+        Long user1Id = userDbStorage.create(getTestUser(1)).getId();
+        Long user2Id = userDbStorage.create(getTestUser(2)).getId();
+        Long user3Id = userDbStorage.create(getTestUser(3)).getId();
+
+        List<BatchItemResult> results = userDbStorage.applyFriendships(List.of(
+                new FriendshipOperation(user1Id, user2Id, BatchAction.ADD),
+                new FriendshipOperation(user1Id, user2Id, BatchAction.ADD),
+                new FriendshipOperation(user2Id, user3Id, BatchAction.ADD),
+                new FriendshipOperation(user2Id, user3Id, BatchAction.REMOVE),
+                new FriendshipOperation(user3Id, user3Id, BatchAction.ADD),
+                new FriendshipOperation(user3Id, user1Id + 100, BatchAction.ADD)));
+        assertEquals(List.of(BatchItemStatus.OK, BatchItemStatus.UNCHANGED, BatchItemStatus.OK,
+                        BatchItemStatus.OK, BatchItemStatus.INVALID, BatchItemStatus.NOT_FOUND),
+                results.stream().map(BatchItemResult::getStatus).toList());
+
+        assertEquals(List.of(user2Id), userDbStorage.findAllFriends(user1Id).stream().map(User::getId).toList());
+        assertTrue(userDbStorage.findAllFriends(user2Id).isEmpty());
+    }
+
+    @Test
+    void uncommittedFriendshipsDoNotReachGraph() {
+        Long user1Id = userDbStorage.create(getTestUser(1)).getId();
+        Long user2Id = userDbStorage.create(getTestUser(2)).getId();
+
+        userDbStorage.applyFriendships(List.of(new FriendshipOperation(user1Id, user2Id, BatchAction.ADD)));
+        assertEquals(1L, jdbc.queryForObject("SELECT COUNT(*) FROM FRIENDS WHERE USER_ID = ?", Long.class, user1Id));
+        assertEquals(0, friendshipGraph.friendsOf(user1Id).length);
+    }
+
+    // Потокам нужны зафиксированные данные, поэтому тест идет вне транзакции теста.
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Sql(scripts = "/truncate.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void concurrentFriendAddsAreIdempotentAndConfirmed() throws Exception {
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            User user = getTestUser(1).toBuilder()
+                    .email("friend" + i + "@ya.ru")
+                    .login("friend" + i)
+                    .build();
+            userIds.add(userDbStorage.create(user).getId());
+        }
+        // Каждая направленная пара добавляется дважды, встречные добавления идут вперемешку.
+        List<long[]> adds = new ArrayList<>();
+        for (Long userId : userIds) {
+            for (Long friendId : userIds) {
+                if (!userId.equals(friendId)) {
+                    adds.add(new long[]{userId, friendId});
+                    adds.add(new long[]{userId, friendId});
+                }
+            }
+        }
+        Collections.shuffle(adds, new Random(17));
+        Long first = userIds.getFirst();
+
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (long[] pair : adds) {
+                futures.add(executor.submit(() -> userDbStorage.addToFriends(pair[0], pair[1])));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            futures.clear();
+            for (Long friendId : userIds.subList(1, userIds.size())) {
+                futures.add(executor.submit(() -> userDbStorage.deleteFromFriends(first, friendId)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(40 * 39 - 39, jdbc.queryForObject("SELECT COUNT(*) FROM FRIENDS", Long.class));
+        assertEquals(39, jdbc.queryForObject("SELECT COUNT(*) FROM FRIENDS WHERE STATUS = 'PENDING'", Long.class));
+        assertEquals(0, jdbc.queryForObject(
+                "SELECT COUNT(*) FROM FRIENDS WHERE STATUS = 'PENDING' AND FRIEND_ID <> ?", Long.class, first));
+        assertEquals(0, friendshipGraph.friendsOf(first).length);
+        assertEquals(39, friendshipGraph.friendsOf(userIds.getLast()).length);
+        assertEquals(38, userDbStorage.findCommonFriends(userIds.get(1), userIds.get(2)).size());
+    }
+
     @Test
     @DisplayName("Create a user without a name then name=login")
     void createUserWithoutName() {
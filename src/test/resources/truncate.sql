@@ -0,0 +1,8 @@
+-- Очистка данных между тестами. Схему создает Flyway один раз на контекст, справочники не трогаем.
+SET REFERENTIAL_INTEGRITY FALSE;
+TRUNCATE TABLE LIKES;
+TRUNCATE TABLE FRIENDS;
+TRUNCATE TABLE FILMS_GENRES;
+TRUNCATE TABLE FILMS RESTART IDENTITY;
+TRUNCATE TABLE USERS RESTART IDENTITY;
+SET REFERENTIAL_INTEGRITY TRUE;